@@ -0,0 +1,47 @@
+package main.bench;
+
+import main.game.BoardState;
+import main.game.Player;
+import main.game.SearchBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the leaf evaluation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+
+    @Param({"opening", "middlegame", "kingEndgame"})
+    public String position;
+
+    private BoardState state;
+    private SearchBoard board;
+
+    @Setup
+    public void setup(){
+        state = Positions.get(position);
+        board = new SearchBoard(state);
+    }
+
+    @Benchmark
+    public int boardState(){
+        return state.computeHeuristic(Player.AI);
+    }
+
+    @Benchmark
+    public int searchBoard(){
+        return board.computeHeuristic(Player.AI);
+    }
+
+    @Benchmark
+    public int pieceSquare(){
+        return board.evaluate(Player.AI);
+    }
+}
@@ -0,0 +1,55 @@
+package main.bench;
+
+import main.game.BoardState;
+import main.game.Move;
+import main.game.SearchBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Successor generation: the GUI-facing BoardState.getSuccessors() and the search's
+ * allocation-free SearchBoard.generateMoves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+
+    @Param({"opening", "middlegame", "kingEndgame"})
+    public String position;
+
+    private BoardState state;
+    private SearchBoard board;
+    private final int[] moves = new int[Move.MAX_MOVES];
+
+    @Setup
+    public void setup(){
+        state = Positions.get(position);
+        board = new SearchBoard(state);
+    }
+
+    @Benchmark
+    public ArrayList<BoardState> successors(){
+        return state.getSuccessors();
+    }
+
+    @Benchmark
+    public int generateMoves(){
+        return board.generateMoves(moves);
+    }
+
+    @Benchmark
+    public int makeUnmakeAll(){
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            board.unmakeMove();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,31 @@
+package main.bench;
+
+import main.game.BoardState;
+
+/**
+ * Fixed positions the benchmarks run on, in PDN FEN notation (see BoardState.fromFen).
+ */
+final class Positions {
+
+    static final String OPENING = "W:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12";
+    static final String MIDDLEGAME = "B:W17,21,22,23,25,26,27,29,30,31:B1,2,3,5,6,7,9,10,11,14";
+    static final String KING_ENDGAME = "W:WK10,K15,K22,K27:BK5,K12,K19,K26";
+
+    private Positions(){}
+
+    /**
+     * Gets a position by its benchmark parameter name.
+     */
+    static BoardState get(String name){
+        switch (name){
+            case "opening":
+                return BoardState.fromFen(OPENING);
+            case "middlegame":
+                return BoardState.fromFen(MIDDLEGAME);
+            case "kingEndgame":
+                return BoardState.fromFen(KING_ENDGAME);
+            default:
+                throw new IllegalArgumentException("No such position " + name);
+        }
+    }
+}
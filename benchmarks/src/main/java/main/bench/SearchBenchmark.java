@@ -0,0 +1,63 @@
+package main.bench;
+
+import main.game.AI;
+import main.game.BoardState;
+import main.game.Player;
+import main.game.SearchConfig;
+import main.game.SearchLimits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-depth single-threaded search from a cleared transposition table.
+ * Reported as searches per second, with the nodes counter as nodes per second; run with
+ * "-prof gc" and divide gc.alloc.rate.norm by the nodes per operation to get the
+ * allocation per node.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    @Param({"opening", "middlegame", "kingEndgame"})
+    public String position;
+
+    @Param({"8"})
+    public int depth;
+
+    private BoardState state;
+    private AI ai;
+    private SearchLimits limits;
+
+    /**
+     * Nodes searched, reported by JMH as a rate.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup(){
+        state = Positions.get(position);
+        ai = new AI(new SearchConfig().setThreads(1).setSeed(1).setTableMb(16), Player.AI);
+        limits = SearchLimits.depth(depth);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable(){
+        ai.clear();
+    }
+
+    @Benchmark
+    public BoardState search(Nodes counter){
+        BoardState result = ai.move(state, limits);
+        counter.nodes += ai.getNodes();
+        return result;
+    }
+}
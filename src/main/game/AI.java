@@ -1,120 +1,608 @@
 package main.game;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class AI {
+/**
+ * Minimax engine: iterative deepening alpha-beta or principal variation search over
+ * SearchBoard, with a transposition table, an endgame database and an opening book,
+ * optionally on several threads.
+ */
+public class AI implements SearchEngine {
 
-    // determines the depth that the AI searches to in minimax
+    // limits of the running search: maximum depth, time in milliseconds and nodes per
+    // move (0 = no limit)
     private int depth;
+    private long timeBudgetMs;
+    private long nodeBudget;
     // which player the AI searches with respect to
     private Player player;
+    // results of earlier searched positions, kept between moves and shared by all workers
+    private TranspositionTable table;
+    // exact values of positions with few pieces, null if there is no database file
+    private EndgameDatabase database;
+    // moves of the first positions of the game, null if there is no book file
+    private OpeningBook book;
+    // chooses between equally scoring moves
+    private Random random;
+    // is the search seeded, i.e. must it be deterministic?
+    private boolean deterministic;
+    // are pending jumps followed past the maximum depth?
+    private boolean quiescence;
+    // evaluation used at the end of the search
+    private Heuristic heuristic;
+    // half width of the PVS root window around the previous iteration's score: a fifth
+    // of the heuristic's man, at least 1
+    private int aspirationWindow;
+    // tree search used below the root
+    private SearchAlgorithm algorithm;
+    // are late quiet moves searched shallower first? (PVS only)
+    private boolean reductions;
 
-    public AI(){
-        depth = Settings.AI_DEPTH;
-        player = Player.AI;
+    // root moves are searched in parallel on this pool (null for a single worker)
+    private ForkJoinPool pool;
+    // searchers not in use by a worker
+    private BlockingQueue<Searcher> searchers;
+    // all searchers, the first one searches the root moves when they are not split
+    private Searcher[] workers;
+    // how several workers share the search
+    private ParallelSearch parallelism;
+
+    // state of the running search, shared by all workers
+    private long deadline;
+    private AtomicLong nodes = new AtomicLong();
+    private AtomicLong cutoffs = new AtomicLong();
+    private AtomicLong firstMoveCutoffs = new AtomicLong();
+    private AtomicLong leafEvaluations = new AtomicLong();
+    private AtomicLong tableProbes = new AtomicLong();
+    private AtomicLong tableHits = new AtomicLong();
+    private AtomicInteger maxPly = new AtomicInteger();
+    private volatile boolean stopped;
+    // may the running search be stopped? (not before the first iteration completed)
+    private volatile boolean stoppable;
+    // has the search been cancelled from outside? (see stop)
+    private volatile boolean cancelled;
+    // receives progress reports, may be null
+    private volatile SearchListener listener;
+    // score of the move chosen by the last search
+    private int lastScore;
+    // statistics of the last move
+    private volatile SearchStats lastStats;
+
+    /**
+     * Creates an AI playing for the given player. The minimax algorithm is taken from the
+     * config; see SearchConfig.createEngine for Monte Carlo search.
+     */
+    public AI(SearchConfig config, Player player){
+        if (config.getAlgorithm() == SearchAlgorithm.MCTS){
+            throw new IllegalArgumentException("AI is a minimax engine, use MonteCarloSearch for MCTS");
+        }
+        config.validate();
+        this.player = player;
+        table = new TranspositionTable(config.getTableMb());
+        database = EndgameDatabase.load(config.getEndgameDatabase());
+        book = OpeningBook.load(config.getOpeningBook());
+        deterministic = config.getSeed() != 0;
+        quiescence = config.useQuiescence();
+        heuristic = config.getHeuristic();
+        aspirationWindow = Math.max(1, heuristic.getManValue() / 5);
+        algorithm = config.getAlgorithm();
+        random = deterministic ? new Random(config.getSeed()) : new Random();
+        parallelism = config.getParallelism();
+        workers = new Searcher[config.getThreads()];
+        reductions = algorithm == SearchAlgorithm.PVS && config.useReductions();
+        searchers = new ArrayBlockingQueue<>(workers.length);
+        for (int i = 0; i < workers.length; i++){
+            workers[i] = new Searcher(this, player, table, database);
+            searchers.add(workers[i]);
+        }
+        if (workers.length > 1){
+            pool = new ForkJoinPool(workers.length);
+        }
+    }
+
+    @Override
+    public BoardState move(BoardState state, SearchLimits limits){
+        int move = bestMove(state, limits);
+        if (move == Move.NONE){
+            return null;
+        }
+        return state.apply(move);
     }
 
-    public BoardState move(BoardState state){
-        ArrayList<BoardState> successors = state.getSuccessors();
-            if (successors.size() == 1){
-                return successors.get(0);
+    /**
+     * Chooses the move to play: the only legal move, the opening book move or the best
+     * move found by the search.
+     * @return the move, or Move.NONE if the search was cancelled
+     */
+    int bestMove(BoardState state, SearchLimits limits){
+        depth = limits.getDepth();
+        timeBudgetMs = limits.getTimeMs();
+        nodeBudget = limits.getNodes();
+        long start = System.nanoTime();
+        nodes.set(0);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        if (count == 1){
+            lastStats = SearchStats.unsearched(System.nanoTime() - start);
+            return moves[0];
+        }
+        if (book != null){
+            int move = book.probe(state.getHash(), moves, count);
+            if (move != Move.NONE){
+                lastStats = SearchStats.unsearched(System.nanoTime() - start);
+                return move;
             }
-            return minimaxMove(successors);
+        }
+        table.newSearch();
+        for (Searcher searcher : searchers){
+            searcher.setRoot(state);
+        }
+        return iterativeDeepening(moves, count);
     }
 
     /**
-     * Chooses best successor state based on the minimax algorithm.
-     * @param successors
-     * @return
+     * Lists the positions after every reply of the opponent to move in the state, following
+     * multi-jumps to the end. The reply the last search expected comes first, the others
+     * follow by the evaluation of their position, the best for the opponent first.
+     * Positions the AI cannot move in are left out.
      */
-    private BoardState minimaxMove(ArrayList<BoardState> successors){
-        int bestScore = Integer.MIN_VALUE;
-        ArrayList<BoardState> equalBests = new ArrayList<>();
-        for (BoardState succ : successors){
-            int val = minimax(succ, this.depth);
-            if (val > bestScore){
-                bestScore = val;
-                equalBests.clear();
+    @Override
+    public List<BoardState> expectedReplies(BoardState state){
+        List<BoardState> positions = new ArrayList<>();
+        addReplies(state, positions);
+        if (positions.size() > 2){
+            final Map<BoardState, Integer> scores = new IdentityHashMap<>();
+            for (BoardState position : positions){
+                scores.put(position, new SearchBoard(position).evaluate(player));
             }
-            if (val == bestScore){
-                equalBests.add(succ);
+            Collections.sort(positions.subList(1, positions.size()), new Comparator<BoardState>() {
+                @Override
+                public int compare(BoardState a, BoardState b){
+                    return Integer.compare(scores.get(a), scores.get(b));
+                }
+            });
+        }
+        return positions;
+    }
+
+    private void addReplies(BoardState state, List<BoardState> positions){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        // best move stored by the last search first
+        int expected = TranspositionTable.move(table.probe(state.getHash()));
+        for (int i = 1; i < count; i++){
+            if (moves[i] == expected){
+                moves[i] = moves[0];
+                moves[0] = expected;
             }
         }
-        // choose randomly from equally scoring best moves
-        return randomMove(equalBests);
+        for (int i = 0; i < count; i++){
+            BoardState next = state.apply(moves[i]);
+            if (next.getTurn() == state.getTurn()){
+                addReplies(next, positions);
+            }
+            else if (!next.isGameOver() && next.hasMoves()){
+                positions.add(next);
+            }
+        }
+    }
+
+    @Override
+    public void clear(){
+        table.clear();
+    }
+
+    @Override
+    public void stop(){
+        cancelled = true;
+        stopped = true;
+    }
+
+    @Override
+    public void close(){
+        if (pool != null){
+            pool.shutdown();
+        }
+        table = null;
+    }
+
+    @Override
+    public void resume(){
+        cancelled = false;
+    }
+
+    @Override
+    public void setSearchListener(SearchListener listener){
+        this.listener = listener;
     }
 
     /**
-     * Chooses a successor state randomly for equal values from the minmax.
-     * @param successors
-     * @return
+     * Searches the root moves to depth 1, 2, 3... until the maximum depth is reached or the
+     * time or node budget runs out, and returns the best move of the last completed iteration.
+     * Each iteration searches the root moves in the order of the previous iteration's scores,
+     * and deeper nodes start with the best move stored in the transposition table.
+     * Records the statistics of the search and reports it to Flight Recorder.
+     * @param moves
+     * @param count
+     * @return best move, or Move.NONE if the search was cancelled
      */
-    private BoardState randomMove(ArrayList<BoardState> successors){
-        if (successors.size() < 1){
-            throw new RuntimeException("Can't randomly choose from empty list.");
+    private int iterativeDeepening(int[] moves, int count){
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        deadline = timeBudgetMs > 0 ? start + timeBudgetMs * 1000000 : Long.MAX_VALUE;
+        nodes.set(0);
+        cutoffs.set(0);
+        firstMoveCutoffs.set(0);
+        leafEvaluations.set(0);
+        tableProbes.set(0);
+        tableHits.set(0);
+        maxPly.set(0);
+        long[] iterationNodes = new long[this.depth];
+        long[] iterationNanos = new long[this.depth];
+        int completed = 0;
+        stopped = cancelled;
+        stoppable = false;
+        // generation order, used to list equal moves independently of search order
+        int[] generated = moves.clone();
+        int[] scores = new int[count];
+        ArrayList<Integer> equalBests = new ArrayList<>();
+        List<Future<Void>> helpers = startHelpers(moves, count);
+        try {
+            for (int d = 1; d <= this.depth; d++){
+                SearchIterationEvent iteration = new SearchIterationEvent();
+                iteration.begin();
+                long iterationStart = System.nanoTime();
+                long nodesBefore = nodes.get();
+                int bestScore = aspirationSearch(moves, count, d, scores);
+                if (cancelled){
+                    return Move.NONE;
+                }
+                if (stopped){
+                    break;
+                }
+                completed = d;
+                iterationNodes[d - 1] = nodes.get() - nodesBefore;
+                iterationNanos[d - 1] = System.nanoTime() - iterationStart;
+                // remember equally scoring best moves of this iteration
+                equalBests.clear();
+                for (int i = 0; i < count; i++){
+                    for (int j = 0; j < count; j++){
+                        if (moves[j] == generated[i] && scores[j] == bestScore){
+                            equalBests.add(moves[j]);
+                        }
+                    }
+                }
+                sortByScore(moves, scores, count);
+                lastScore = bestScore;
+                stoppable = true;
+                if (iteration.shouldCommit()){
+                    iteration.depth = d;
+                    iteration.nodes = iterationNodes[d - 1];
+                    iteration.score = bestScore;
+                    iteration.bestMove = Move.toString(moves[0]);
+                    iteration.commit();
+                }
+                SearchListener progress = listener;
+                if (progress != null){
+                    progress.onProgress(d, nodes.get(), moves[0]);
+                }
+                // no need to search deeper once the game is decided
+                if (Math.abs(bestScore) > SearchBoard.WIN_SCORE - SearchBoard.MAX_PLY){
+                    break;
+                }
+            }
+        }
+        finally {
+            stopHelpers(helpers);
         }
-        Random rand = new Random();
-        int i = rand.nextInt(successors.size());
-        return successors.get(i);
+        // choose randomly from equally scoring best moves
+        int move = randomMove(equalBests);
+        SearchStats stats = new SearchStats(completed, maxPly.get(), nodes.get(), leafEvaluations.get(),
+                cutoffs.get(), firstMoveCutoffs.get(), tableProbes.get(), tableHits.get(),
+                iterationNodes, iterationNanos, System.nanoTime() - start);
+        lastStats = stats;
+        if (event.shouldCommit()){
+            event.depth = stats.getDepth();
+            event.maxPly = stats.getMaxPly();
+            event.nodes = stats.getNodes();
+            event.leafEvaluations = stats.getLeafEvaluations();
+            event.cutoffs = stats.getCutoffs();
+            event.firstMoveCutoffRate = stats.getFirstMoveCutoffRate();
+            event.tableHitRate = stats.getTableHitRate();
+            event.branchingFactor = stats.getEffectiveBranchingFactor();
+            event.bestMove = Move.toString(move);
+            event.commit();
+        }
+        return move;
     }
 
-
     /**
-     * Implements the minimax algorithm with alpha-beta pruning set the alpha and the beta
-     * @param node
-     * @param depth
-     * @return minimax score associated with node
+     * Scores the root moves to the given depth. PVS first searches a window of
+     * aspirationWindow around the previous iteration's score, and searches again with
+     * the window opened on the side the best score fell out of.
+     * @return best score
      */
-    private int minimax(BoardState node, int depth){
-        // initialize alpha (computed as a max)
-        int alpha = Integer.MIN_VALUE;
-        // initialize beta (computed as a min)
-        int beta = Integer.MAX_VALUE;
-        // call minimax
-        return minimax(node, depth, alpha, beta);
+    private int aspirationSearch(int[] moves, int count, int depth, int[] scores){
+        int alpha = -Searcher.INFINITY;
+        int beta = Searcher.INFINITY;
+        if (algorithm == SearchAlgorithm.PVS && depth > 1
+                && Math.abs(lastScore) < SearchBoard.WIN_SCORE - SearchBoard.MAX_PLY){
+            alpha = lastScore - aspirationWindow;
+            beta = lastScore + aspirationWindow;
+        }
+        while (true){
+            int bestScore = minimaxMove(moves, count, depth, scores, alpha, beta);
+            if (stopped){
+                return bestScore;
+            }
+            if (bestScore < alpha){
+                alpha = -Searcher.INFINITY;
+            }
+            else if (bestScore >= beta){
+                beta = Searcher.INFINITY;
+            }
+            else {
+                return bestScore;
+            }
+        }
     }
 
     /**
-     * Implements the minimax algorithm with alpha-beta pruning
-     * @param node
+     * Scores every root move with the minimax algorithm, in parallel if there are several
+     * workers. The best score found so far is shared as alpha bound, so moves that cannot
+     * beat it are cut off; their scores are upper bounds below the best score. Once a move
+     * reaches beta the remaining moves are skipped.
+     * @param moves
+     * @param count
      * @param depth
-     * @param alpha
-     * @param beta
-     * @return
+     * @param scores receives the score of each move
+     * @param alpha lower end of the root window, scores below it are upper bounds
+     * @param beta upper end of the root window, scores from it on are lower bounds
+     * @return best score
      */
-    private int minimax(BoardState node, int depth, int alpha, int beta){
-        if (depth == 0 || node.isGameOver()){
-            return node.computeHeuristic(this.player);
-        }
-        // MAX player = player
-        if (node.getTurn() == player){
-            // player tries to maximize this value
-            int v = Integer.MIN_VALUE;
-            for (BoardState child : node.getSuccessors()){
-                v = Math.max(v, minimax(child, depth-1, alpha, beta));
-                alpha = Math.max(alpha, v);
-                // prune
-                if (alpha >= beta){
-                    break;
+    private int minimaxMove(final int[] moves, int count, final int depth, final int[] scores,
+                            final int alpha, final int beta){
+        final AtomicInteger bestScore = new AtomicInteger(-Searcher.INFINITY);
+        if (pool == null || parallelism == ParallelSearch.LAZY_SMP){
+            Searcher searcher = workers[0];
+            for (int i = 0; i < count && !stopped && bestScore.get() < beta; i++){
+                scores[i] = searcher.searchRootMove(moves[i], depth, Math.max(alpha, bestScore.get()), beta, i == 0);
+                raise(bestScore, scores[i]);
+            }
+            return bestScore.get();
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            final int index = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    if (bestScore.get() >= beta){
+                        return null;
+                    }
+                    Searcher searcher = searchers.take();
+                    try {
+                        scores[index] = searcher.searchRootMove(moves[index], depth,
+                                Math.max(alpha, bestScore.get()), beta, index == 0);
+                        raise(bestScore, scores[index]);
+                    }
+                    finally {
+                        searchers.add(searcher);
+                    }
+                    return null;
                 }
+            });
+        }
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)){
+                result.get();
             }
-            return v;
-        }
-        // MIN player = opponent
-        if (node.getTurn() == player.getOpposite()){
-            // opponent tries to minimize this value
-            int v = Integer.MAX_VALUE;
-            for (BoardState child : node.getSuccessors()){
-                v = Math.min(v,minimax(child, depth-1, alpha, beta));
-                beta = Math.min(beta, v);
-                // prune
-                if (alpha >= beta){
-                    break;
+        }
+        catch (InterruptedException e){
+            stopped = true;
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e){
+            throw new RuntimeException("Error in parallel search", e.getCause());
+        }
+        return bestScore.get();
+    }
+
+    /**
+     * In Lazy SMP mode, starts the helper workers: each runs its own iterative deepening
+     * over the root moves until stopHelpers is called, only to fill the shared
+     * transposition table. Helpers start at alternating depths and with the root moves
+     * rotated, so they tend to search other parts of the tree than the main search.
+     * @return the running helpers, empty if there are none
+     */
+    private List<Future<Void>> startHelpers(int[] moves, final int count){
+        List<Future<Void>> helpers = new ArrayList<>();
+        if (pool == null || parallelism != ParallelSearch.LAZY_SMP){
+            return helpers;
+        }
+        for (int i = 1; i < workers.length; i++){
+            final Searcher searcher = workers[i];
+            final int firstDepth = 1 + i % 2;
+            final int[] rotated = new int[count];
+            for (int j = 0; j < count; j++){
+                rotated[j] = moves[(j + i) % count];
+            }
+            helpers.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int d = firstDepth; d <= depth && !stopped; d++){
+                        int best = -Searcher.INFINITY;
+                        for (int j = 0; j < count && !stopped; j++){
+                            best = Math.max(best, searcher.searchRootMove(rotated[j], d, best, Searcher.INFINITY, j == 0));
+                        }
+                    }
+                    return null;
                 }
+            }));
+        }
+        return helpers;
+    }
+
+    /**
+     * Stops the helper workers and waits until they are done.
+     */
+    private void stopHelpers(List<Future<Void>> helpers){
+        if (helpers.isEmpty()){
+            return;
+        }
+        stopped = true;
+        try {
+            for (Future<Void> helper : helpers){
+                helper.get();
             }
-            return v;
         }
-        throw new RuntimeException("Error in minimax algorithm");
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e){
+            throw new RuntimeException("Error in parallel search", e.getCause());
+        }
+    }
+
+    /**
+     * Atomically raises the best score to the given score if it is higher.
+     */
+    private static void raise(AtomicInteger bestScore, int score){
+        int current = bestScore.get();
+        while (score > current && !bestScore.compareAndSet(current, score)){
+            current = bestScore.get();
+        }
+    }
+
+    /**
+     * Sorts moves by descending score (insertion sort, keeps order of equal scores).
+     */
+    private static void sortByScore(int[] moves, int[] scores, int count){
+        for (int i = 1; i < count; i++){
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score){
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Adds nodes searched by a worker and stops the search once the budget is used up.
+     */
+    void addNodes(int count){
+        long total = nodes.addAndGet(count);
+        if (stoppable){
+            if ((nodeBudget > 0 && total >= nodeBudget) || System.nanoTime() > deadline){
+                stopped = true;
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics counted by a worker.
+     */
+    void addCounters(long leafCount, int cutoffCount, int firstMoveCutoffCount, long probeCount, long hitCount,
+                     int deepestPly){
+        leafEvaluations.addAndGet(leafCount);
+        cutoffs.addAndGet(cutoffCount);
+        firstMoveCutoffs.addAndGet(firstMoveCutoffCount);
+        tableProbes.addAndGet(probeCount);
+        tableHits.addAndGet(hitCount);
+        int current = maxPly.get();
+        while (deepestPly > current && !maxPly.compareAndSet(current, deepestPly)){
+            current = maxPly.get();
+        }
+    }
+
+    /**
+     * Number of nodes searched for the last move.
+     */
+    public long getNodes(){
+        return nodes.get();
+    }
+
+    /**
+     * Share of the last move's beta cutoffs that were caused by the first move searched,
+     * a measure of how good the move ordering is.
+     */
+    public double getFirstMoveCutoffRate(){
+        long total = cutoffs.get();
+        return total == 0 ? 0 : (double) firstMoveCutoffs.get() / total;
+    }
+
+    @Override
+    public SearchStats getLastStats(){
+        return lastStats;
+    }
+
+    /**
+     * Score of the move chosen by the last search.
+     */
+    int getLastScore(){
+        return lastScore;
+    }
+
+    boolean useQuiescence(){
+        return quiescence;
+    }
+
+    Heuristic getHeuristic(){
+        return heuristic;
+    }
+
+    SearchAlgorithm getAlgorithm(){
+        return algorithm;
+    }
+
+    boolean useReductions(){
+        return reductions;
+    }
+
+    boolean isStopped(){
+        return stopped;
+    }
+
+    /**
+     * Seeded searches only use transposition table results of the exact depth. Without
+     * reductions and helpers (see SearchConfig.validate) every score is then the exact minimax
+     * value or a bound that does not depend on the search order, so the chosen move does
+     * not depend on how the workers were scheduled.
+     */
+    boolean isDeterministic(){
+        return deterministic;
+    }
+
+    /**
+     * Chooses a move randomly for equal values from the minmax.
+     * @param moves
+     * @return
+     */
+    private int randomMove(ArrayList<Integer> moves){
+        if (moves.size() < 1){
+            throw new RuntimeException("Can't randomly choose from empty list.");
+        }
+        int i = random.nextInt(moves.size());
+        return moves.get(i);
     }
 }
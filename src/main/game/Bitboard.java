@@ -0,0 +1,102 @@
+package main.game;
+
+/**
+ * Helpers for the 32-bit board representation used by BoardState.
+ * Only the 32 dark squares are stored. Square n lies on row n/4, even rows
+ * use the odd columns and odd rows use the even columns, so square 0 is
+ * (row 0, column 1) and square 31 is (row 7, column 6).
+ */
+public final class Bitboard {
+
+    // number of playable (dark) squares
+    public static final int SQUARES = 32;
+
+    // diagonal directions
+    public static final int UP_LEFT = 0;
+    public static final int UP_RIGHT = 1;
+    public static final int DOWN_LEFT = 2;
+    public static final int DOWN_RIGHT = 3;
+
+    // squares on even / odd rows
+    static final int EVEN_ROWS = 0x0F0F0F0F;
+    static final int ODD_ROWS = 0xF0F0F0F0;
+    // leftmost / rightmost dark square of every row
+    static final int FIRST_IN_ROW = 0x11111111;
+    static final int LAST_IN_ROW = 0x88888888;
+    // rows 0 and 7
+    static final int TOP_ROW = 0x0000000F;
+    static final int BOTTOM_ROW = 0xF0000000;
+    // starting squares of both players
+    static final int AI_START = 0x00000FFF;
+    static final int HUMAN_START = 0xFFF00000;
+
+    private Bitboard(){}
+
+    /**
+     * Square index of a dark square given its grid position.
+     */
+    public static int square(int row, int col){
+        return row * 4 + col / 2;
+    }
+
+    public static int row(int square){
+        return square >>> 2;
+    }
+
+    public static int col(int square){
+        return 2 * (square & 3) + ((row(square) + 1) & 1);
+    }
+
+    /**
+     * Is the grid position one of the 32 playable squares?
+     */
+    public static boolean isDark(int row, int col){
+        return ((row + col) & 1) == 1;
+    }
+
+    /**
+     * Moves every set bit one square in the given direction, dropping bits that leave the board.
+     */
+    public static int step(int bits, int direction){
+        switch (direction){
+            case UP_LEFT:
+                return ((bits & EVEN_ROWS) >>> 4) | ((bits & ODD_ROWS & ~FIRST_IN_ROW) >>> 5);
+            case UP_RIGHT:
+                return ((bits & EVEN_ROWS & ~LAST_IN_ROW) >>> 3) | ((bits & ODD_ROWS) >>> 4);
+            case DOWN_LEFT:
+                return ((bits & EVEN_ROWS) << 4) | ((bits & ODD_ROWS & ~FIRST_IN_ROW) << 3);
+            case DOWN_RIGHT:
+                return ((bits & EVEN_ROWS & ~LAST_IN_ROW) << 5) | ((bits & ODD_ROWS) << 4);
+            default:
+                throw new IllegalArgumentException("No such direction " + direction);
+        }
+    }
+
+    public static int opposite(int direction){
+        return 3 - direction;
+    }
+
+    /**
+     * Can men of the given player move in this direction? (kings can move in all of them)
+     */
+    public static boolean isForward(Player player, int direction){
+        if (player == Player.AI){
+            return direction == DOWN_LEFT || direction == DOWN_RIGHT;
+        }
+        return direction == UP_LEFT || direction == UP_RIGHT;
+    }
+
+    /**
+     * Row on which men of the given player are crowned.
+     */
+    public static int promotionRow(Player player){
+        return player == Player.AI ? BOTTOM_ROW : TOP_ROW;
+    }
+
+    /**
+     * Pieces that are allowed to move in the given direction.
+     */
+    static int movers(int pieces, int kings, Player player, int direction){
+        return isForward(player, direction) ? pieces : pieces & kings;
+    }
+}
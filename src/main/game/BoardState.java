@@ -1,30 +1,37 @@
 package main.game;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 public class BoardState {
 
     // side length of the board
     public static final int SIDE_LENGTH = 8;
-    // state of the board
-    Piece[][] state;
+    // state of the board, one bit per dark square (see Bitboard)
+    int aiPieces;
+    int humanPieces;
+    int kings;
     // origin and destination position of the most recent move
     private int fromPosX = -1;
     private int fromPosY = -1;
     private int toPosX = -1;
     private int toPosY = -1;
-    // origin position of double jump move, used to invalidate other moves during multi-move
-    private int doublejumpPosX = -1;
-    private int doublejumpPosY = -1;
+    // square of the piece doing a multi-jump, used to invalidate other moves during multi-move
+    int jumpSquare = -1;
     // player's turn
     private Player turn;
-    // track number of human/AI pieces on board
-    public HashMap<Player, Integer> pieceCount;
-    public HashMap<Player, Integer> kingCount;
+    // Zobrist hash of the position (see Zobrist)
+    private long hash;
+    // moves made with only kings on the board, counted for Game's tie rule; not part of
+    // the hash
+    private int onlyKingsMoves;
+
+    // shared piece instances handed out to the GUI
+    private static final Piece AI_MAN = new Piece(Player.AI, false);
+    private static final Piece AI_KING = new Piece(Player.AI, true);
+    private static final Piece HUMAN_MAN = new Piece(Player.HUMAN, false);
+    private static final Piece HUMAN_KING = new Piece(Player.HUMAN, true);
 
     public BoardState(){
-        state = new Piece[BoardState.SIDE_LENGTH][BoardState.SIDE_LENGTH];
     }
 
     /**
@@ -33,34 +40,99 @@ public class BoardState {
     public static BoardState InitialState(){
         BoardState bs = new BoardState();
         bs.turn = Settings.FIRSTMOVE;
-        for (int i = 0; i < BoardState.SIDE_LENGTH; i++){
-            for (int j =0; j<BoardState.SIDE_LENGTH;j+=2) {
-                    // AI pieces in first 3 rows
-                    if (i < 3) {
-                        bs.state[i][(j+1)-i%2] = new Piece(Player.AI, false);
-                    }
-                    // Human pieces in last 3 rows
-                    else if (i > 4) {
-                        bs.state[i][(j+1)-i%2] = new Piece(Player.HUMAN, false);
+        // AI pieces in first 3 rows
+        bs.aiPieces = Bitboard.AI_START;
+        // Human pieces in last 3 rows
+        bs.humanPieces = Bitboard.HUMAN_START;
+        bs.hash = Zobrist.hash(bs.aiPieces, bs.humanPieces, bs.kings, bs.turn, bs.jumpSquare);
+        return bs;
+    }
+
+    /**
+     * Reads a position in PDN FEN notation, e.g. "W:W21,22,K23:B1,2,3". Black is the AI
+     * (starting on squares 1-12), white the human; the first letter is the player to move.
+     * Squares are numbered 1-32 from the AI's side, kings are prefixed with K.
+     */
+    public static BoardState fromFen(String fen){
+        String[] parts = fen.trim().split(":");
+        if (parts.length != 3){
+            throw new IllegalArgumentException("Invalid FEN position: " + fen);
+        }
+        BoardState bs = new BoardState();
+        bs.turn = fenPlayer(parts[0], fen);
+        for (int i = 1; i < 3; i++){
+            Player player = fenPlayer(parts[i].substring(0, 1), fen);
+            String squares = parts[i].substring(1);
+            if (squares.isEmpty()){
+                continue;
+            }
+            for (String square : squares.split(",")){
+                boolean king = square.startsWith("K");
+                int bit;
+                try {
+                    int number = Integer.parseInt(king ? square.substring(1) : square);
+                    if (number < 1 || number > Bitboard.SQUARES){
+                        throw new IllegalArgumentException("Invalid square " + square + " in FEN position: " + fen);
                     }
+                    bit = 1 << (number - 1);
+                }
+                catch (NumberFormatException e){
+                    throw new IllegalArgumentException("Invalid square " + square + " in FEN position: " + fen);
+                }
+                if (player == Player.AI){
+                    bs.aiPieces |= bit;
+                }
+                else {
+                    bs.humanPieces |= bit;
+                }
+                if (king){
+                    bs.kings |= bit;
+                }
             }
         }
-        int aiCount = 12;
-        int humanCount = 12;
-        bs.pieceCount = new HashMap<>();
-        bs.pieceCount.put(Player.AI, aiCount);
-        bs.pieceCount.put(Player.HUMAN,humanCount);
-        bs.kingCount = new HashMap<>();
-        bs.kingCount.put(Player.AI, 0);
-        bs.kingCount.put(Player.HUMAN, 0);
+        bs.hash = Zobrist.hash(bs.aiPieces, bs.humanPieces, bs.kings, bs.turn, bs.jumpSquare);
         return bs;
     }
 
-    private BoardState deepCopy(){
-        BoardState newBs = new BoardState();
-        for(int i=0;i<BoardState.SIDE_LENGTH;i++) {
-            System.arraycopy(this.state[i], 0, newBs.state[i], 0, BoardState.SIDE_LENGTH);
+    private static Player fenPlayer(String color, String fen){
+        switch (color){
+            case "B":
+                return Player.AI;
+            case "W":
+                return Player.HUMAN;
+            default:
+                throw new IllegalArgumentException("Invalid color " + color + " in FEN position: " + fen);
         }
+    }
+
+    /**
+     * Writes the position in PDN FEN notation (see fromFen).
+     */
+    public String toFen(){
+        return (turn == Player.AI ? "B" : "W") + ":W" + fenSquares(humanPieces) + ":B" + fenSquares(aiPieces);
+    }
+
+    private String fenSquares(int pieces){
+        StringBuilder result = new StringBuilder();
+        while (pieces != 0){
+            int square = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (result.length() > 0){
+                result.append(',');
+            }
+            if ((kings & (1 << square)) != 0){
+                result.append('K');
+            }
+            result.append(square + 1);
+        }
+        return result.toString();
+    }
+
+    private BoardState copy(){
+        BoardState newBs = new BoardState();
+        newBs.aiPieces = this.aiPieces;
+        newBs.humanPieces = this.humanPieces;
+        newBs.kings = this.kings;
         return newBs;
     }
 
@@ -72,69 +144,50 @@ public class BoardState {
     }
 
     private int heuristic1(Player player){
+        return heuristic1(getPieces(player), getPieces(player.getOpposite()), kings);
+    }
+
+    /**
+     * Material heuristic on raw bitboards, shared with SearchBoard.
+     */
+    static int heuristic1(int pieces, int opponentPieces, int kings){
         // 'infinite' value for winning
-        if (this.pieceCount.get(player.getOpposite()) == 0){
+        if (opponentPieces == 0){
             return Integer.MAX_VALUE;
         }
         // 'negative infinite' for losing
-        if (this.pieceCount.get(player) == 0){
+        if (pieces == 0){
             return Integer.MIN_VALUE;
         }
         // difference between piece counts with kings counted twice
-        return playerScore(player) - playerScore(player.getOpposite());
+        return playerScore(pieces, kings) - playerScore(opponentPieces, kings);
     }
 
-    private int playerScore(Player player){
-        return this.pieceCount.get(player) + this.kingCount.get(player);
+    private static int playerScore(int pieces, int kings){
+        return Integer.bitCount(pieces) + Integer.bitCount(pieces & kings);
     }
 
     /**
      * Gets valid successor states for a player
      */
     public ArrayList<BoardState> getSuccessors(){
-        // compute jump successors
-        ArrayList<BoardState> successors = getSuccessors(true);
-            if (successors.size() > 0){
-                // return only jump successors if available (forced)
-                return  successors;
-            }
-            else{
-                // return non-jump successors (since no jumps available)
-                return getSuccessors(false);
-            }
+        // return only jump successors if available (forced)
+        return getSuccessors(hasJump());
     }
 
     /**
      * Get valid jump or non-jump successor states for a player
      */
     public ArrayList<BoardState> getSuccessors(boolean jump){
-        ArrayList<BoardState> result = new ArrayList<>();
-        for (int i = 0; i < BoardState.SIDE_LENGTH; i++){
-            for(int j =0; j < BoardState.SIDE_LENGTH; j++) {
-                if (state[i][j] != null) {
-                    if (state[i][j].getPlayer() == turn) {
-                        result.addAll(getSuccessors(i,j, jump));
-                    }
-                }
-            }
-        }
-        return result;
+        return toSuccessors(movablePieces(), jump);
     }
 
     /**
      * Gets valid successor states for a specific position on the board
      */
     public ArrayList<BoardState> getSuccessors(int positionRow,int positionColumn){
-            // compute jump successors GLOBALLY
-            ArrayList<BoardState> jumps = getSuccessors(true);
-            if (jumps.size() > 0){
-                // return only jump successors if available (forced)
-                return getSuccessors(positionRow,positionColumn, true);
-            }
-            else{
-//                 return non-jump successors (since no jumps available)
-                return getSuccessors(positionRow,positionColumn, false);
-            }
+        // jumps are forced if any piece of the player can jump
+        return getSuccessors(positionRow, positionColumn, hasJump());
     }
 
     /**
@@ -142,121 +195,131 @@ public class BoardState {
      * @return
      */
     public ArrayList<BoardState> getSuccessors(int positionRow,int positionColumn, boolean jump){
-        if (this.getPiece(positionRow,positionColumn).getPlayer() != turn){
+        Piece piece = this.getPiece(positionRow, positionColumn);
+        if (piece == null || piece.getPlayer() != turn){
             throw new IllegalArgumentException("No such piece at that position");
         }
-        Piece piece = this.state[positionRow][positionColumn];
-        if(jump){
-            return jumpSuccessors(piece, positionRow,positionColumn);
-        }
-        else{
-            return nonJumpSuccessors(piece, positionRow,positionColumn);
+        int bit = 1 << Bitboard.square(positionRow, positionColumn);
+        return toSuccessors(movablePieces() & bit, jump);
+    }
+
+    private ArrayList<BoardState> toSuccessors(int pieces, boolean jump){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = generate(pieces, jump, moves);
+        ArrayList<BoardState> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            result.add(apply(moves[i]));
         }
+        return result;
     }
 
     /**
-     * Gets valid non-jump moves at a given position for a given piece
+     * Writes the legal moves of the player to move into moves (see Move), in the
+     * same order as getSuccessors(). Allocates nothing.
+     * @param moves receives the moves, at least Move.MAX_MOVES long
+     * @return number of moves
      */
-    private ArrayList<BoardState> nonJumpSuccessors(Piece piece, int positionRow,int positionColumn){
-        ArrayList<BoardState> result = new ArrayList<>();
-        // loop through allowed movement directions
-        for (int dx : piece.getXMovements()){
-            for (int dy : piece.getYMovements()){
-                int newX = positionColumn + dx;
-                int newY = positionRow + dy;
-                // new position valid?
-                if (isValid(newY, newX)) {
-                    // new position available?
-                    if (getPiece(newY, newX) == null) {
-                        result.add(createNewState(positionRow, positionColumn, newY, newX, piece, false, dy,dx,false));
-                    }
-                }
-            }
-        }
-        return result;
+    public int generateMoves(int[] moves){
+        return generate(movablePieces(), hasJump(), moves);
     }
 
     /**
-     * Gets valid jump moves at a given position for a given piece
+     * Writes the legal moves of the piece at the given position into moves, in the same
+     * order as getSuccessors(row, column). Jumps are forced if any piece can jump.
+     * @return number of moves
      */
-    private ArrayList<BoardState> jumpSuccessors(Piece piece, int positionY , int positionX){
-        ArrayList<BoardState> result = new ArrayList<>();
-        // no other jump moves are valid while doing double jump
-        if ((doublejumpPosX > 0 ||doublejumpPosY >0) && (positionX != doublejumpPosX && positionY != doublejumpPosY)){
-            return result;
+    public int generateMoves(int positionRow, int positionColumn, int[] moves){
+        Piece piece = this.getPiece(positionRow, positionColumn);
+        if (piece == null || piece.getPlayer() != turn){
+            throw new IllegalArgumentException("No such piece at that position");
         }
-        // loop through allowed movement directions
-        for (int dx : piece.getXMovements()){
-            for (int dy : piece.getYMovements()){
-                int newX = positionX + dx;
-                int newY = positionY + dy;
-                // new position valid?
-                if (isValid(newY, newX)) {
-                    // new position contain opposite player?
-                    if (getPiece(newY,newX) != null && getPiece(newY, newX).getPlayer() == piece.getPlayer().getOpposite()){
-                        newX = newX + dx; newY = newY + dy;
-                        // jump position valid?
-                        if (isValid(newY, newX)){
-                            // jump position available?
-                            if (getPiece(newY,newX) == null) {
-                                result.add(createNewState(positionY,positionX, newY,newX, piece, true, dy, dx, getPiece(newY-dy, newX-dx).isKing()));
-                            }
-                        }
-                    }
-                }
-            }
+        int bit = 1 << Bitboard.square(positionRow, positionColumn);
+        return generate(movablePieces() & bit, hasJump(), moves);
+    }
+
+    private int generate(int pieces, boolean jump, int[] moves){
+        return MoveGenerator.generate(pieces, getPieces(turn.getOpposite()), ~(aiPieces | humanPieces),
+                kings, turn, jump, moves, 0);
+    }
+
+    /**
+     * Does the player to move have a legal move?
+     */
+    public boolean hasMoves(){
+        // a multi-jump always continues with a jump
+        return hasJump() || (jumpSquare < 0
+                && MoveGenerator.stepTargets(getPieces(turn), ~(aiPieces | humanPieces), kings, turn) != 0);
+    }
+
+    /**
+     * Does the player to move have a (forced) jump?
+     */
+    public boolean hasJump(){
+        return MoveGenerator.jumpTargets(movablePieces(), getPieces(turn.getOpposite()),
+                ~(aiPieces | humanPieces), kings, turn) != 0;
+    }
+
+    /**
+     * Pieces of the player to move that may move; only the jumping piece during a multi-jump.
+     */
+    private int movablePieces(){
+        if (jumpSquare >= 0){
+            return 1 << jumpSquare;
         }
-        return result;
+        return getPieces(turn);
     }
 
-    private BoardState createNewState(int oldRowPos,int oldColPos, int newRowPos,int newColPos, Piece piece, boolean jumped, int dy, int dx , boolean isJumpOverKing){
-        BoardState result = this.deepCopy();
-        result.pieceCount = new HashMap<>(pieceCount);
-        result.kingCount = new HashMap<>(kingCount);
+    /**
+     * Creates the state reached by playing a legal move of the player to move.
+     */
+    public BoardState apply(int move){
+        BoardState result = this.copy();
+        Player player = turn;
+        result.onlyKingsMoves = ((aiPieces | humanPieces) & ~kings) == 0 ? onlyKingsMoves + 1 : onlyKingsMoves;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int fromTo = (1 << from) | (1 << to);
+        result.hash = hash ^ Zobrist.moveKey(move, player, (kings & (1 << from)) != 0)
+                ^ Zobrist.turnKey(turn, jumpSquare);
+        // move piece
+        if (player == Player.AI){
+            result.aiPieces ^= fromTo;
+        }
+        else {
+            result.humanPieces ^= fromTo;
+        }
+        if ((kings & (1 << from)) != 0){
+            result.kings ^= fromTo;
+        }
         // check if king position
-        boolean kingConversion = false;
-        if (!piece.isKing() && isKingPosition(newRowPos, piece.getPlayer())){
-            piece = new Piece(piece.getPlayer(), true);
-            kingConversion = true;
-            // increase king count
-            result.kingCount.replace(piece.getPlayer(), result.kingCount.get(piece.getPlayer()) + 1);
+        else if (Move.isPromotion(move)){
+            result.kings |= 1 << to;
         }
-        // move piece
-        result.state[oldRowPos][oldColPos] = null;
-        result.state[newRowPos][newColPos] = piece;
         // store meta data
-        result.fromPosX = oldColPos;
-        result.fromPosY = oldRowPos;
-        result.toPosX = newColPos;
-        result.toPosY = newRowPos;
-        Player oppPlayer = piece.getPlayer().getOpposite();
-        result.turn = oppPlayer;
-        if (jumped){
+        result.fromPosX = Bitboard.col(from);
+        result.fromPosY = Bitboard.row(from);
+        result.toPosX = Bitboard.col(to);
+        result.toPosY = Bitboard.row(to);
+        result.turn = player.getOpposite();
+        if (Move.isCapture(move)){
             // remove captured piece
-            result.state[newRowPos-dy][newColPos-dx] = null;
-            result.pieceCount.replace(oppPlayer, result.pieceCount.get(oppPlayer) - 1);
-            if(isJumpOverKing){
-                result.kingCount.replace(oppPlayer, result.kingCount.get(oppPlayer) - 1);
-            }
+            int capturedBit = ~(1 << Move.captured(move));
+            result.aiPieces &= capturedBit;
+            result.humanPieces &= capturedBit;
+            result.kings &= capturedBit;
             // is another jump available? (not allowed if just converted into king)
-            if (result.jumpSuccessors(piece, newRowPos,newColPos).size() > 0 && kingConversion == false){
+            if (!Move.isPromotion(move) && MoveGenerator.jumpTargets(1 << to, result.getPieces(player.getOpposite()),
+                    ~(result.aiPieces | result.humanPieces), result.kings, player) != 0){
                 // don't swap turns
-                result.turn = piece.getPlayer();
+                result.turn = player;
                 // remember double jump position
-                result.doublejumpPosY = newRowPos;
-                result.doublejumpPosX = newColPos;
+                result.jumpSquare = to;
             }
         }
+        result.hash ^= Zobrist.turnKey(result.turn, result.jumpSquare);
         return result;
     }
 
-    private boolean isKingPosition(int posRow, Player player){
-        if (posRow == 0 && player == Player.HUMAN){
-            return true;
-        }
-        else return posRow == SIDE_LENGTH - 1 && player == Player.AI;
-    }
-
     /**
      * Gets the destination position of the most recent move.
      */
@@ -287,25 +350,65 @@ public class BoardState {
         return turn;
     }
 
+    /**
+     * Gets the Zobrist hash of the position.
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /**
+     * Number of moves made with only kings on the board since the state was created by
+     * InitialState or fromFen, see Game.ONLY_KINGS_MOVES.
+     */
+    public int getOnlyKingsMoves(){
+        return onlyKingsMoves;
+    }
+
     /**
      * Is the board in a game over state?
      */
     public boolean isGameOver(){
-        return (pieceCount.get(Player.AI) == 0 || pieceCount.get(Player.HUMAN) == 0);
+        return aiPieces == 0 || humanPieces == 0;
     }
 
     /**
-     * Get player piece at given position.
+     * Number of pieces (kings included) the player has on the board.
      */
-    public Piece getPiece(int i,int j){
-        return state[i][j];
+    public int getPieceCount(Player player){
+        return Integer.bitCount(getPieces(player));
     }
 
     /**
-     * Check if grid indices are valid
+     * Number of kings the player has on the board.
      */
-    private boolean isValid(int y, int x){
-        return (0 <= y) && (y < SIDE_LENGTH) && (0 <= x) && (x < SIDE_LENGTH);
+    public int getKingCount(Player player){
+        return Integer.bitCount(getPieces(player) & kings);
+    }
+
+    /**
+     * Bitboard of the player's pieces.
+     */
+    int getPieces(Player player){
+        return player == Player.AI ? aiPieces : humanPieces;
+    }
+
+    /**
+     * Get player piece at given position.
+     */
+    public Piece getPiece(int i,int j){
+        if (!Bitboard.isDark(i, j)){
+            return null;
+        }
+        int bit = 1 << Bitboard.square(i, j);
+        boolean king = (kings & bit) != 0;
+        if ((aiPieces & bit) != 0){
+            return king ? AI_KING : AI_MAN;
+        }
+        if ((humanPieces & bit) != 0){
+            return king ? HUMAN_KING : HUMAN_MAN;
+        }
+        return null;
     }
 
 }
@@ -0,0 +1,314 @@
+package main.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the endgame database (see EndgameDatabase) by retrograde analysis.
+ *
+ * Slices are solved from fewer to more pieces and, with the same pieces, from fewer to
+ * more men, so the positions reached by a capture or promotion are always known. Every
+ * position of a slice first looks at its own moves once: without moves it is lost, a
+ * move into a smaller slice may win or bound how long it can hold out, and the moves
+ * that stay in the slice are counted. Positions are then decided in order of their plies
+ * to the end, from a work queue per number of plies. Every decided position un-makes the
+ * simple moves that lead to it to find its predecessors in the slice: a predecessor wins
+ * by moving into a loss, and loses once none of its moves is left that does not lead to
+ * a win of the opponent. Positions never decided are draws. All slices are kept in memory
+ * while building.
+ */
+public class EndgameBuilder {
+
+    // largest number of pieces of the positions built
+    private final int maxPieces;
+    // material of the slices built, in build order
+    private final List<int[]> materials = new ArrayList<>();
+    // values of every slice built per player to move (AI first), see EndgameDatabase
+    private final short[][] values = new short[EndgameIndex.SLICES * 2][];
+
+    // slice being built, its values so far (0 until decided) and material
+    private int currentSlice;
+    private final short[][] current = new short[2][];
+    private int[] material;
+    // per position of the slice: moves not yet known to lose, counting moves into a draw
+    // of a smaller slice, which never will
+    private final byte[][] remaining = new byte[2][];
+    // per position of the slice: plies of the quickest win found so far if more than 0,
+    // else minus the plies of the slowest loss by a move into a smaller slice
+    private final short[][] bounds = new short[2][];
+    // positions to decide per number of plies to the end, as index * 2 + side
+    private final List<IntList> queue = new ArrayList<>();
+    private final SearchBoard board = new SearchBoard();
+    private final int[][] moveBuffers = new int[SearchBoard.MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[] position = new int[3];
+
+    // results of the moves of the position being looked at
+    private int moves;
+    private int inSlice;
+    private int draws;
+    private int quickestWin;
+    private int slowestLoss;
+
+    public EndgameBuilder(int maxPieces){
+        if (maxPieces < 2 || maxPieces > EndgameIndex.MAX_PIECES){
+            throw new IllegalArgumentException("Endgame databases hold 2 to " + EndgameIndex.MAX_PIECES + " pieces");
+        }
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Solves all slices.
+     */
+    public void build(){
+        for (int pieces = 2; pieces <= maxPieces; pieces++){
+            for (int men = 0; men <= pieces; men++){
+                for (int aiCount = 1; aiCount < pieces; aiCount++){
+                    int humanCount = pieces - aiCount;
+                    for (int aiMen = Math.max(0, men - humanCount); aiMen <= Math.min(aiCount, men); aiMen++){
+                        int humanMen = men - aiMen;
+                        buildSlice(aiMen, aiCount - aiMen, humanMen, humanCount - humanMen);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the database: a header, the material of every slice and the values of the
+     * slices in the same order.
+     */
+    public void write(String path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))){
+            out.writeInt(EndgameDatabase.MAGIC);
+            out.writeInt(EndgameDatabase.VERSION);
+            out.writeInt(maxPieces);
+            out.writeInt(materials.size());
+            for (int[] material : materials){
+                for (int count : material){
+                    out.writeByte(count);
+                }
+            }
+            for (int[] material : materials){
+                int slice = EndgameIndex.slice(material[0], material[1], material[2], material[3]);
+                for (int side = 0; side < 2; side++){
+                    short[] sideValues = values[slice * 2 + side];
+                    ByteBuffer bytes = ByteBuffer.allocate(sideValues.length * 2);
+                    bytes.asShortBuffer().put(sideValues);
+                    out.write(bytes.array());
+                }
+            }
+        }
+    }
+
+    /**
+     * Value of a position built so far, as the database holds it.
+     */
+    int value(int aiPieces, int humanPieces, int kings, Player turn){
+        int slice = EndgameIndex.slice(aiPieces, humanPieces, kings);
+        return values[slice * 2 + (turn == Player.AI ? 0 : 1)][EndgameIndex.index(aiPieces, humanPieces, kings)];
+    }
+
+    private void buildSlice(int aiMen, int aiKings, int humanMen, int humanKings){
+        long start = System.currentTimeMillis();
+        int size = (int) EndgameIndex.size(aiMen, aiKings, humanMen, humanKings);
+        currentSlice = EndgameIndex.slice(aiMen, aiKings, humanMen, humanKings);
+        material = new int[]{aiMen, aiKings, humanMen, humanKings};
+        for (int side = 0; side < 2; side++){
+            current[side] = new short[size];
+            remaining[side] = new byte[size];
+            bounds[side] = new short[size];
+        }
+
+        for (int side = 0; side < 2; side++){
+            Player turn = side == 0 ? Player.AI : Player.HUMAN;
+            for (int index = 0; index < size; index++){
+                EndgameIndex.position(index, aiMen, aiKings, humanMen, humanKings, position);
+                board.setPosition(position[0], position[1], position[2], turn);
+                moves = 0;
+                inSlice = 0;
+                draws = 0;
+                quickestWin = Integer.MAX_VALUE;
+                slowestLoss = 0;
+                scanMoves(turn);
+                int entry = index * 2 + side;
+                remaining[side][index] = (byte) (inSlice + draws);
+                if (moves == 0){
+                    queue(0, entry);
+                }
+                else if (quickestWin != Integer.MAX_VALUE){
+                    bounds[side][index] = (short) quickestWin;
+                    queue(quickestWin, entry);
+                }
+                else {
+                    bounds[side][index] = (short) -slowestLoss;
+                    if (inSlice + draws == 0){
+                        queue(slowestLoss, entry);
+                    }
+                }
+            }
+        }
+
+        // a position is queued again when a quicker win is found, and only the entry for
+        // its bound decides it; losses are queued once, when no move is left
+        for (int plies = 0; plies < queue.size(); plies++){
+            IntList entries = queue.get(plies);
+            if (entries == null){
+                continue;
+            }
+            for (int i = 0; i < entries.size; i++){
+                int side = entries.items[i] & 1;
+                int index = entries.items[i] >>> 1;
+                int bound = bounds[side][index];
+                if (current[side][index] == 0 && (bound <= 0 || bound == plies)){
+                    decide(side, index, plies, bound > 0);
+                }
+            }
+            queue.set(plies, null);
+        }
+        queue.clear();
+
+        int[] counts = new int[3];
+        for (int side = 0; side < 2; side++){
+            for (int value : current[side]){
+                counts[value > 0 ? 0 : value < 0 ? 1 : 2]++;
+            }
+            values[currentSlice * 2 + side] = current[side];
+            current[side] = null;
+            remaining[side] = null;
+            bounds[side] = null;
+        }
+        materials.add(material);
+        System.out.printf("AI %d men %d kings vs human %d men %d kings: %,d wins %,d losses %,d draws, %d ms%n",
+                aiMen, aiKings, humanMen, humanKings, counts[0], counts[1], counts[2],
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Counts every move of the player, following multi-jumps to the end, into moves,
+     * inSlice and draws, and records the quickest win and slowest loss into a smaller slice.
+     */
+    private void scanMoves(Player player){
+        int[] buffer = moveBuffers[board.getPly()];
+        int count = board.generateMoves(buffer);
+        for (int i = 0; i < count; i++){
+            board.makeMove(buffer[i]);
+            if (board.getTurn() == player){
+                scanMoves(player);
+            }
+            else {
+                moves++;
+                Player turn = board.getTurn();
+                int aiPieces = board.getPieces(Player.AI);
+                int humanPieces = board.getPieces(Player.HUMAN);
+                int kings = board.getKings();
+                int slice = EndgameIndex.slice(aiPieces, humanPieces, kings);
+                if (board.getPieces(turn) == 0){
+                    quickestWin = 1;
+                }
+                else if (slice == currentSlice){
+                    inSlice++;
+                }
+                else {
+                    // the opponent wins or loses in |value| - 1 plies, so this move in |value|
+                    int value = values[slice * 2 + (turn == Player.AI ? 0 : 1)][EndgameIndex.index(aiPieces, humanPieces, kings)];
+                    if (value < 0){
+                        quickestWin = Math.min(quickestWin, -value);
+                    }
+                    else if (value > 0){
+                        slowestLoss = Math.max(slowestLoss, value);
+                    }
+                    else {
+                        draws++;
+                    }
+                }
+            }
+            board.unmakeMove();
+        }
+    }
+
+    /**
+     * Stores the value of a position won or lost in the given plies and passes it on to
+     * the predecessors in the slice: every simple move of the player who moved last that
+     * ends on the position, from a position where that player had no jump to make.
+     */
+    private void decide(int side, int index, int plies, boolean win){
+        current[side][index] = (short) (win ? plies + 1 : -plies - 1);
+        EndgameIndex.position(index, material[0], material[1], material[2], material[3], position);
+        Player mover = side == 0 ? Player.HUMAN : Player.AI;
+        int pieces = position[mover == Player.AI ? 0 : 1];
+        int opponent = position[mover == Player.AI ? 1 : 0];
+        int kings = position[2];
+        for (int dir = 0; dir < 4; dir++){
+            int froms = Bitboard.step(Bitboard.movers(pieces, kings, mover, dir), Bitboard.opposite(dir))
+                    & ~(pieces | opponent);
+            while (froms != 0){
+                int fromBit = froms & -froms;
+                froms ^= fromBit;
+                int fromTo = fromBit | Bitboard.step(fromBit, dir);
+                int before = pieces ^ fromTo;
+                int beforeKings = (kings & fromTo) != 0 ? kings ^ fromTo : kings;
+                if (MoveGenerator.jumpTargets(before, opponent, ~(before | opponent), beforeKings, mover) != 0){
+                    continue;
+                }
+                int predecessor = mover == Player.AI ? EndgameIndex.index(before, opponent, beforeKings)
+                        : EndgameIndex.index(opponent, before, beforeKings);
+                update(1 - side, predecessor, plies + 1, !win);
+            }
+        }
+    }
+
+    /**
+     * Records a move of an undecided position that wins or loses in the given plies.
+     */
+    private void update(int side, int index, int plies, boolean win){
+        if (current[side][index] != 0){
+            return;
+        }
+        int bound = bounds[side][index];
+        if (win){
+            if (bound <= 0 || plies < bound){
+                bounds[side][index] = (short) plies;
+                queue(plies, index * 2 + side);
+            }
+        }
+        else if (bound <= 0 && --remaining[side][index] == 0){
+            queue(Math.max(plies, -bound), index * 2 + side);
+        }
+    }
+
+    private void queue(int plies, int entry){
+        if (plies >= Short.MAX_VALUE){
+            throw new IllegalStateException("Position decided in more than " + (Short.MAX_VALUE - 1) + " plies");
+        }
+        while (queue.size() <= plies){
+            queue.add(null);
+        }
+        IntList entries = queue.get(plies);
+        if (entries == null){
+            entries = new IntList();
+            queue.set(plies, entries);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Growable array of ints.
+     */
+    private static class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int item){
+            if (size == items.length){
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+    }
+}
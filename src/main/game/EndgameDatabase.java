@@ -0,0 +1,133 @@
+package main.game;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Win/loss/draw database of all positions with few pieces, built offline by
+ * EndgameBuilder and read through memory-mapped slices of the file.
+ *
+ * Every position holds two bytes from the view of the player to move: 0 for a draw,
+ * n > 0 for a win and -n for a loss when the game ends n - 1 plies later, so -1 is a
+ * position without moves. A multi-jump counts as one ply.
+ *
+ * The database does not know Game's tie rule: ONLY_KINGS_MOVES moves with only kings on
+ * the board end the game in a tie, so a database win may be a tie in the game. A
+ * multi-jump counts one move per jump for the rule, at most one per piece on the board
+ * more than its plies. probe therefore only reports wins and losses that end within the
+ * moves the rule has left, counting every piece as an extra jump; draws are always exact.
+ */
+public class EndgameDatabase {
+
+    // "CKDB"
+    static final int MAGIC = 0x434B4442;
+    // version 1 held plies to the next capture or promotion instead of to the end,
+    // version 2 one byte per position (capped at 127) and slots for men on their
+    // promotion row
+    static final int VERSION = 3;
+    // score of a won database position, less the plies to the win; far below real wins
+    // so the search still prefers winning outright
+    static final int WIN_SCORE = SearchBoard.WIN_SCORE / 3;
+    // returned by probe for positions the database does not hold
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // largest number of pieces of the positions held
+    private final int maxPieces;
+    // values of every slice per player to move (AI first), null for slices not held
+    private final MappedByteBuffer[] slices = new MappedByteBuffer[EndgameIndex.SLICES * 2];
+
+    private EndgameDatabase(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")){
+            FileChannel channel = raf.getChannel();
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if (in.readInt() != MAGIC){
+                throw new IOException("Not an endgame database: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION){
+                throw new IOException("Database version " + version + " instead of " + VERSION
+                        + ", rebuild it with main.tools.BuildEndgameDatabase");
+            }
+            maxPieces = in.readInt();
+            int count = in.readInt();
+            // slice table (4 bytes per slice), then the values of the slices in order
+            long offset = 16 + 4L * count;
+            for (int i = 0; i < count; i++){
+                int aiMen = in.readByte();
+                int aiKings = in.readByte();
+                int humanMen = in.readByte();
+                int humanKings = in.readByte();
+                int slice = EndgameIndex.slice(aiMen, aiKings, humanMen, humanKings);
+                long size = EndgameIndex.size(aiMen, aiKings, humanMen, humanKings) * 2;
+                for (int side = 0; side < 2; side++){
+                    // mapped buffers stay valid after the channel is closed
+                    slices[slice * 2 + side] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                    offset += size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the database file.
+     * @return the database, or null if the file does not exist or cannot be read
+     */
+    public static EndgameDatabase load(String path){
+        File file = new File(path);
+        if (!file.isFile()){
+            return null;
+        }
+        try {
+            EndgameDatabase database = new EndgameDatabase(file);
+            System.out.println("Loaded endgame database " + path + " (up to " + database.maxPieces + " pieces)");
+            return database;
+        }
+        catch (IOException e){
+            System.out.println("Cannot load endgame database " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getMaxPieces(){
+        return maxPieces;
+    }
+
+    /**
+     * Scores the board's position from the view of the player to move.
+     * @return score between -WIN_SCORE and WIN_SCORE, or UNKNOWN if the position is not
+     * held or its result may be changed by the tie rule (see class comment)
+     */
+    int probe(SearchBoard board){
+        int aiPieces = board.getPieces(Player.AI);
+        int humanPieces = board.getPieces(Player.HUMAN);
+        int pieces = Integer.bitCount(aiPieces | humanPieces);
+        if (board.getJumpSquare() >= 0 || aiPieces == 0 || humanPieces == 0 || pieces > maxPieces){
+            return UNKNOWN;
+        }
+        int value = value(aiPieces, humanPieces, board.getKings(), board.getTurn());
+        if (value != 0 && Math.abs(value) + pieces > Game.ONLY_KINGS_MOVES - board.getOnlyKingsMoves()){
+            return UNKNOWN;
+        }
+        if (value > 0){
+            return WIN_SCORE - value;
+        }
+        if (value < 0){
+            return -WIN_SCORE - value;
+        }
+        return 0;
+    }
+
+    /**
+     * Raw value of a position held by the database (see class comment).
+     */
+    int value(int aiPieces, int humanPieces, int kings, Player turn){
+        int slice = EndgameIndex.slice(aiPieces, humanPieces, kings);
+        MappedByteBuffer values = slices[slice * 2 + (turn == Player.AI ? 0 : 1)];
+        return values.getShort(EndgameIndex.index(aiPieces, humanPieces, kings) * 2);
+    }
+}
@@ -0,0 +1,210 @@
+package main.game;
+
+/**
+ * Numbering of the positions in the endgame database. Positions are grouped in slices
+ * by their material (AI men, AI kings, human men, human kings). Men never stand on the
+ * row they promote on, so the men are numbered first: by how many of each side stand on
+ * their own back row, which the other side's men cannot reach, then by the combinatorial
+ * ranks of the back row men and of the men on the 24 middle squares. The AI kings and
+ * the human kings follow, ranked among the squares left. Every index of a slice is a
+ * position that can occur in a game.
+ */
+final class EndgameIndex {
+
+    // largest number of pieces a slice may hold
+    static final int MAX_PIECES = 8;
+    // number of slice numbers (see slice)
+    static final int SLICES = (MAX_PIECES + 1) * (MAX_PIECES + 1) * (MAX_PIECES + 1) * (MAX_PIECES + 1);
+    // rows only the men of one side can stand on, and the squares the men of both can
+    private static final int AI_BACK_ROW = Bitboard.TOP_ROW;
+    private static final int HUMAN_BACK_ROW = Bitboard.BOTTOM_ROW;
+    private static final int MIDDLE = ~(Bitboard.TOP_ROW | Bitboard.BOTTOM_ROW);
+    private static final int ROW_SQUARES = 4;
+    private static final int MIDDLE_SQUARES = Bitboard.SQUARES - 2 * ROW_SQUARES;
+
+    // BINOMIAL[n][k] = n choose k
+    private static final long[][] BINOMIAL = new long[Bitboard.SQUARES + 1][MAX_PIECES + 1];
+    // MEN_OFFSETS[aiMen][humanMen][aiBack][humanBack] = first men number with that many
+    // men on their back row, MEN_COUNTS[aiMen][humanMen] = number of ways to place the men
+    private static final long[][][][] MEN_OFFSETS = new long[MAX_PIECES + 1][MAX_PIECES + 1][ROW_SQUARES + 1][ROW_SQUARES + 1];
+    private static final long[][] MEN_COUNTS = new long[MAX_PIECES + 1][MAX_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= Bitboard.SQUARES; n++){
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES; k++){
+                BINOMIAL[n][k] = n == 0 ? 0 : BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+        for (int aiMen = 0; aiMen <= MAX_PIECES; aiMen++){
+            for (int humanMen = 0; humanMen <= MAX_PIECES; humanMen++){
+                long offset = 0;
+                for (int aiBack = 0; aiBack <= ROW_SQUARES; aiBack++){
+                    for (int humanBack = 0; humanBack <= ROW_SQUARES; humanBack++){
+                        MEN_OFFSETS[aiMen][humanMen][aiBack][humanBack] = offset;
+                        offset += menCount(aiMen, humanMen, aiBack, humanBack);
+                    }
+                }
+                MEN_COUNTS[aiMen][humanMen] = offset;
+            }
+        }
+    }
+
+    private EndgameIndex(){}
+
+    /**
+     * Slice number of a material combination.
+     */
+    static int slice(int aiMen, int aiKings, int humanMen, int humanKings){
+        return ((aiMen * (MAX_PIECES + 1) + aiKings) * (MAX_PIECES + 1) + humanMen) * (MAX_PIECES + 1) + humanKings;
+    }
+
+    /**
+     * Slice number of a position.
+     */
+    static int slice(int aiPieces, int humanPieces, int kings){
+        return slice(Integer.bitCount(aiPieces & ~kings), Integer.bitCount(aiPieces & kings),
+                Integer.bitCount(humanPieces & ~kings), Integer.bitCount(humanPieces & kings));
+    }
+
+    /**
+     * Number of positions in a slice.
+     */
+    static long size(int aiMen, int aiKings, int humanMen, int humanKings){
+        int free = Bitboard.SQUARES - aiMen - humanMen;
+        return MEN_COUNTS[aiMen][humanMen] * BINOMIAL[free][aiKings] * BINOMIAL[free - aiKings][humanKings];
+    }
+
+    /**
+     * Index of a position within its slice.
+     */
+    static int index(int aiPieces, int humanPieces, int kings){
+        int aiMen = aiPieces & ~kings;
+        int humanMen = humanPieces & ~kings;
+        int aiKings = aiPieces & kings;
+        int humanKings = humanPieces & kings;
+        int aiBack = aiMen & AI_BACK_ROW;
+        int aiMiddle = aiMen & MIDDLE;
+        int humanBack = humanMen & HUMAN_BACK_ROW;
+        int humanMiddle = humanMen & MIDDLE;
+        int aiMiddleCount = Integer.bitCount(aiMiddle);
+
+        long index = rank(aiBack, AI_BACK_ROW);
+        index = index * BINOMIAL[MIDDLE_SQUARES][aiMiddleCount] + rank(aiMiddle, MIDDLE);
+        index = index * BINOMIAL[ROW_SQUARES][Integer.bitCount(humanBack)] + rank(humanBack, HUMAN_BACK_ROW);
+        index = index * BINOMIAL[MIDDLE_SQUARES - aiMiddleCount][Integer.bitCount(humanMiddle)]
+                + rank(humanMiddle, MIDDLE & ~aiMiddle);
+        index += MEN_OFFSETS[Integer.bitCount(aiMen)][Integer.bitCount(humanMen)]
+                [Integer.bitCount(aiBack)][Integer.bitCount(humanBack)];
+        int free = ~(aiMen | humanMen);
+        index = index * BINOMIAL[Integer.bitCount(free)][Integer.bitCount(aiKings)] + rank(aiKings, free);
+        free &= ~aiKings;
+        index = index * BINOMIAL[Integer.bitCount(free)][Integer.bitCount(humanKings)] + rank(humanKings, free);
+        return (int) index;
+    }
+
+    /**
+     * Fills position with the AI pieces, human pieces and kings of an index in a slice
+     * (inverse of index).
+     */
+    static void position(int index, int aiMen, int aiKings, int humanMen, int humanKings, int[] position){
+        int afterMen = Bitboard.SQUARES - aiMen - humanMen;
+        long humanKingsCount = BINOMIAL[afterMen - aiKings][humanKings];
+        long aiKingsCount = BINOMIAL[afterMen][aiKings];
+
+        long rest = index;
+        int humanKingsRank = (int) (rest % humanKingsCount);
+        rest /= humanKingsCount;
+        int aiKingsRank = (int) (rest % aiKingsCount);
+        rest /= aiKingsCount;
+
+        // the last men group starting at or before the men number
+        long[][] offsets = MEN_OFFSETS[aiMen][humanMen];
+        int aiBack = 0;
+        int humanBack = 0;
+        for (int a = 0; a <= ROW_SQUARES; a++){
+            for (int h = 0; h <= ROW_SQUARES; h++){
+                if (offsets[a][h] <= rest && menCount(aiMen, humanMen, a, h) > 0){
+                    aiBack = a;
+                    humanBack = h;
+                }
+            }
+        }
+        rest -= offsets[aiBack][humanBack];
+        int aiMiddle = aiMen - aiBack;
+        int humanMiddle = humanMen - humanBack;
+        long humanMiddleCount = BINOMIAL[MIDDLE_SQUARES - aiMiddle][humanMiddle];
+        long humanBackCount = BINOMIAL[ROW_SQUARES][humanBack];
+        long aiMiddleCount = BINOMIAL[MIDDLE_SQUARES][aiMiddle];
+        int humanMiddleRank = (int) (rest % humanMiddleCount);
+        rest /= humanMiddleCount;
+        int humanBackRank = (int) (rest % humanBackCount);
+        rest /= humanBackCount;
+        int aiMiddleRank = (int) (rest % aiMiddleCount);
+        int aiBackRank = (int) (rest / aiMiddleCount);
+
+        int aiMiddleBits = unrank(aiMiddleRank, aiMiddle, MIDDLE);
+        int aiMenBits = unrank(aiBackRank, aiBack, AI_BACK_ROW) | aiMiddleBits;
+        int humanMenBits = unrank(humanBackRank, humanBack, HUMAN_BACK_ROW)
+                | unrank(humanMiddleRank, humanMiddle, MIDDLE & ~aiMiddleBits);
+        int free = ~(aiMenBits | humanMenBits);
+        int aiKingsBits = unrank(aiKingsRank, aiKings, free);
+        free &= ~aiKingsBits;
+        int humanKingsBits = unrank(humanKingsRank, humanKings, free);
+        position[0] = aiMenBits | aiKingsBits;
+        position[1] = humanMenBits | humanKingsBits;
+        position[2] = aiKingsBits | humanKingsBits;
+    }
+
+    /**
+     * Number of ways to place the men with the given number on their own back row.
+     */
+    private static long menCount(int aiMen, int humanMen, int aiBack, int humanBack){
+        if (aiBack > aiMen || humanBack > humanMen){
+            return 0;
+        }
+        int aiMiddle = aiMen - aiBack;
+        return BINOMIAL[ROW_SQUARES][aiBack] * BINOMIAL[MIDDLE_SQUARES][aiMiddle]
+                * BINOMIAL[ROW_SQUARES][humanBack] * BINOMIAL[MIDDLE_SQUARES - aiMiddle][humanMen - humanBack];
+    }
+
+    /**
+     * Rank of a set of squares among all sets of the same size within the free squares.
+     */
+    private static long rank(int set, int free){
+        long rank = 0;
+        int k = 1;
+        while (set != 0){
+            int bit = set & -set;
+            set ^= bit;
+            rank += BINOMIAL[Integer.bitCount(free & (bit - 1))][k++];
+        }
+        return rank;
+    }
+
+    /**
+     * Set of size squares within the free squares with the given rank (inverse of rank).
+     */
+    private static int unrank(long rank, int size, int free){
+        int set = 0;
+        for (int k = size; k > 0; k--){
+            int position = k - 1;
+            while (BINOMIAL[position + 1][k] <= rank){
+                position++;
+            }
+            rank -= BINOMIAL[position][k];
+            set |= nthSquare(free, position);
+        }
+        return set;
+    }
+
+    /**
+     * Bit of the n-th (from 0) square in the set.
+     */
+    private static int nthSquare(int set, int n){
+        for (int i = 0; i < n; i++){
+            set &= set - 1;
+        }
+        return set & -set;
+    }
+}
@@ -0,0 +1,245 @@
+package main.game;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Long-lived thread that runs AI searches requested by the GUI, so the search never
+ * blocks the caller. Requests are queued and answered one at a time through the listener,
+ * which is called on the engine thread. Cancelling stops the running search and drops
+ * queued requests; answers to cancelled requests are never delivered.
+ *
+ * While the human is to move, the engine ponders (see Settings.PONDER): it searches the
+ * positions after the human's likeliest replies (at most Settings.PONDER_REPLIES, the reply
+ * the AI expects first) and keeps the answers with their search statistics. A request for
+ * a pondered position is answered at once; a request for the position being pondered takes
+ * over its search; a request for another position stops the pondering.
+ */
+public class Engine {
+
+    public interface Listener extends SearchListener {
+
+        /**
+         * Called by the engine thread with the AI's move.
+         * @param state state the AI moved from
+         * @param newState state after the AI's move
+         * @param stats statistics of the search that found the move, also if it was
+         *              found while pondering
+         */
+        void onMove(BoardState state, BoardState newState, SearchStats stats);
+    }
+
+    /**
+     * An AI move found while pondering and the statistics of its search.
+     */
+    private static class Answer {
+        private final BoardState newState;
+        private final SearchStats stats;
+
+        private Answer(BoardState newState, SearchStats stats){
+            this.newState = newState;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * A queued search for the AI move of a game in a given state, or with a null state,
+     * the closing of a game's AI.
+     */
+    private static class Request {
+        private final Game game;
+        private final BoardState state;
+        private final int generation;
+
+        private Request(Game game, BoardState state, int generation){
+            this.game = game;
+            this.state = state;
+            this.generation = generation;
+        }
+    }
+
+    private final Listener listener;
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    // increased on cancel, requests of older generations are dropped
+    private volatile int generation;
+    // request being searched, null if idle
+    private volatile Request current;
+
+    // pondering, only used by the engine thread: the game and generation pondered for,
+    // the positions still to search and the AI's answers found, by position hash
+    private Game ponderGame;
+    private int ponderGeneration;
+    private final Deque<BoardState> ponderQueue = new ArrayDeque<>();
+    private final Map<Long, Answer> pondered = new HashMap<>();
+    // position being pondered, null if none; guarded by ponderLock, so a ponder search is
+    // only stopped while it runs
+    private BoardState pondering;
+    private final Object ponderLock = new Object();
+
+    public Engine(Listener listener){
+        this.listener = listener;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processRequests();
+            }
+        }, "checkers-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a search for the AI's move in the given state of the game.
+     */
+    public void requestMove(Game game, BoardState state){
+        requests.add(new Request(game, state, generation));
+        // keep pondering the requested position, its answer is used as soon as it is found
+        // and its progress is reported from now on
+        synchronized (ponderLock){
+            if (pondering != null){
+                if (ponderGame != game || pondering.getHash() != state.getHash()){
+                    ponderGame.stopAi();
+                }
+                else {
+                    ponderGame.setSearchListener(listener);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels the game's searches and closes its AI on the engine thread once they have
+     * returned, e.g. when the game is replaced by a new one.
+     */
+    public void close(Game game){
+        cancel();
+        requests.add(new Request(game, null, generation));
+    }
+
+    /**
+     * Stops the running search and drops all queued requests except closings.
+     */
+    public void cancel(){
+        generation++;
+        Iterator<Request> queued = requests.iterator();
+        while (queued.hasNext()){
+            if (queued.next().state != null){
+                queued.remove();
+            }
+        }
+        Request request = current;
+        if (request != null){
+            request.game.stopAi();
+        }
+        synchronized (ponderLock){
+            if (pondering != null){
+                ponderGame.stopAi();
+            }
+        }
+    }
+
+    /**
+     * Cancels all searches and stops the engine thread.
+     */
+    public void shutdown(){
+        cancel();
+        thread.interrupt();
+    }
+
+    private void processRequests(){
+        try {
+            while (true){
+                Request request = ponderQueue.isEmpty() ? requests.take() : requests.poll();
+                if (request == null){
+                    ponder();
+                    continue;
+                }
+                if (request.state == null){
+                    // searches run on this thread, so none of the game's is running
+                    if (request.game == ponderGame){
+                        ponderGame = null;
+                        ponderQueue.clear();
+                        pondered.clear();
+                    }
+                    request.game.closeAi();
+                    continue;
+                }
+                // publish the request before checking its generation, so a concurrent
+                // cancel either drops it here or stops its search
+                current = request;
+                request.game.resumeAi();
+                if (request.generation != generation){
+                    current = null;
+                    continue;
+                }
+                Answer answer = null;
+                if (request.game == ponderGame && request.generation == ponderGeneration){
+                    answer = pondered.get(request.state.getHash());
+                }
+                ponderQueue.clear();
+                pondered.clear();
+                if (answer == null){
+                    request.game.setSearchListener(listener);
+                    BoardState newState = request.game.searchAiMove(request.state);
+                    answer = newState == null ? null : new Answer(newState, request.game.getSearchStats());
+                }
+                current = null;
+                if (answer != null && request.generation == generation){
+                    listener.onMove(request.state, answer.newState, answer.stats);
+                    startPondering(request.game, answer.newState, request.generation);
+                }
+            }
+        }
+        catch (InterruptedException e){
+            // engine shut down
+        }
+    }
+
+    /**
+     * Queues the positions after the human's replies to the AI's move for pondering.
+     */
+    private void startPondering(Game game, BoardState state, int requestGeneration){
+        if (!Settings.PONDER || state.getTurn() != Player.HUMAN || state.isGameOver()){
+            return;
+        }
+        ponderGame = game;
+        ponderGeneration = requestGeneration;
+        // a full search per reply: past the likeliest few the human has usually moved
+        List<BoardState> positions = game.getPonderPositions(state);
+        ponderQueue.addAll(positions.subList(0, Math.min(positions.size(), Settings.PONDER_REPLIES)));
+    }
+
+    /**
+     * Searches the next queued ponder position, unless a request came in meanwhile.
+     */
+    private void ponder(){
+        BoardState position = ponderQueue.poll();
+        synchronized (ponderLock){
+            if (ponderGeneration != generation){
+                ponderQueue.clear();
+                return;
+            }
+            if (!requests.isEmpty()){
+                ponderQueue.addFirst(position);
+                return;
+            }
+            pondering = position;
+            ponderGame.resumeAi();
+        }
+        ponderGame.setSearchListener(null);
+        BoardState answer = ponderGame.searchAiMove(position);
+        synchronized (ponderLock){
+            pondering = null;
+        }
+        if (answer != null){
+            pondered.put(position.getHash(), new Answer(answer, ponderGame.getSearchStats()));
+        }
+    }
+}
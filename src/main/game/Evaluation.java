@@ -0,0 +1,86 @@
+package main.game;
+
+/**
+ * Terms of the PIECE_SQUARE heuristic. Every piece is worth a value depending on its
+ * kind and square, which covers material, the advancement of men, the guard of the back
+ * rank and the centralization of kings. SearchBoard keeps the sum of these values up to
+ * date on every move; only mobility is computed at the leaf, from a few bitboard operations.
+ * Scores are from the AI's view, a man is worth 100.
+ */
+final class Evaluation {
+
+    static final int MAN = 100;
+    static final int KING = 150;
+    // bonus per row a man has advanced
+    private static final int ADVANCE = 4;
+    // bonus of a man still guarding his back rank against enemy promotions
+    private static final int BACK_RANK = 10;
+    // bonus of a man in the four central columns
+    private static final int CENTER = 4;
+    // bonus per step a king is closer to the center
+    private static final int KING_CENTER = 6;
+    // bonus per square a player's pieces can move to
+    static final int MOBILITY = 2;
+
+    // values of men per player and of kings, per square
+    private static final int[][] MEN = new int[2][Bitboard.SQUARES];
+    private static final int[] KINGS = new int[Bitboard.SQUARES];
+
+    static {
+        for (int square = 0; square < Bitboard.SQUARES; square++){
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
+            int center = col >= 2 && col <= 5 ? CENTER : 0;
+            for (Player player : Player.values()){
+                // rows advanced from the player's back rank
+                int advanced = player == Player.AI ? row : 7 - row;
+                int value = MAN + center + ADVANCE * advanced;
+                if (advanced == 0){
+                    value += BACK_RANK;
+                }
+                MEN[player.ordinal()][square] = value;
+            }
+            // 0 on the edge, 3 in the middle four squares
+            int rowDistance = Math.min(row, 7 - row);
+            int colDistance = Math.min(col, 7 - col);
+            KINGS[square] = KING + KING_CENTER * Math.min(rowDistance, colDistance);
+        }
+    }
+
+    private Evaluation(){}
+
+    /**
+     * Value of a piece of the player on the square, positive for AI pieces.
+     */
+    static int piece(Player player, boolean king, int square){
+        int value = king ? KINGS[square] : MEN[player.ordinal()][square];
+        return player == Player.AI ? value : -value;
+    }
+
+    /**
+     * Sum of the values of all pieces.
+     */
+    static int pieces(int aiPieces, int humanPieces, int kings){
+        return sum(aiPieces, kings, Player.AI) + sum(humanPieces, kings, Player.HUMAN);
+    }
+
+    private static int sum(int pieces, int kings, Player player){
+        int total = 0;
+        while (pieces != 0){
+            int square = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            total += piece(player, (kings & (1 << square)) != 0, square);
+        }
+        return total;
+    }
+
+    /**
+     * Mobility term: difference between the numbers of empty squares both players' pieces
+     * can step to.
+     */
+    static int mobility(int aiPieces, int humanPieces, int kings){
+        int empty = ~(aiPieces | humanPieces);
+        return MOBILITY * (Integer.bitCount(MoveGenerator.stepTargets(aiPieces, empty, kings, Player.AI))
+                - Integer.bitCount(MoveGenerator.stepTargets(humanPieces, empty, kings, Player.HUMAN)));
+    }
+}
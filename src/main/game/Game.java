@@ -1,30 +1,57 @@
 package main.game;
 
-import java.util.ArrayList;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.List;
 
 public class Game{
 
-    private Stack<BoardState> state;
-    private int memory;
-    private AI ai;
+    // moves with only kings on the board after which the game ends in a tie
+    public static final int ONLY_KINGS_MOVES = 20;
+
+    // moves played, for undo and redo
+    private GameHistory history;
+    // current position
+    private BoardState state;
+    // engine playing for Player.AI, and the limits of its searches
+    private SearchEngine ai;
+    private SearchLimits limits;
     private String winner;
     private int onlyKingsMoveCounter;
 
     private boolean playerBlocked;
 
+    // legal moves of the current state, computed once per ply and shared by all queries:
+    // in generation order, and grouped by origin square with the group of square s
+    // starting at movesByOrigin[originStart[s]]
+    private BoardState legalMovesState;
+    private final int[] legalMoves = new int[Move.MAX_MOVES];
+    private int legalMoveCount;
+    private final int[] movesByOrigin = new int[Move.MAX_MOVES];
+    private final int[] originStart = new int[Bitboard.SQUARES + 1];
+    // origin squares of the legal moves
+    private int movablePieces;
+
     public Game(){
-        memory = Settings.UNDO_MEMORY;
-        state = new Stack<>();
-        state.push(BoardState.InitialState());
-        ai = new AI();
+        this(BoardState.InitialState(), new SearchConfig().createEngine(Player.AI), SearchLimits.DEFAULT);
+    }
+
+    /**
+     * Creates a game starting from the given state, with the given engine playing for
+     * Player.AI within the given limits.
+     */
+    public Game(BoardState initial, SearchEngine ai, SearchLimits limits){
+        history = new GameHistory(initial);
+        state = initial;
+        this.ai = ai;
+        this.limits = limits;
         onlyKingsMoveCounter =0;
         playerBlocked = false;
     }
 
     public MoveFeedback moveFeedbackClick(){
-        ArrayList<BoardState> jumpSuccessors = this.state.peek().getSuccessors(true);
-        if (jumpSuccessors.size() > 0){
+        updateLegalMoves();
+        // jumps are forced, so either all legal moves are jumps or none
+        if (legalMoveCount > 0 && Move.isCapture(legalMoves[0])){
             return MoveFeedback.FORCED_JUMP;
         }
         else{
@@ -32,70 +59,207 @@ public class Game{
         }
     }
 
-    public ArrayList<BoardState> getValidMoves(int posX,int posY) {
-        return state.peek().getSuccessors(posY,posX);
+    /**
+     * Writes the human's legal moves of the piece at the given position into moves (see Move).
+     * @return number of moves
+     */
+    public int getValidMoves(int posX, int posY, int[] moves) {
+        Piece piece = state.getPiece(posY, posX);
+        if (piece == null || piece.getPlayer() != state.getTurn()){
+            throw new IllegalArgumentException("No such piece at that position");
+        }
+        updateLegalMoves();
+        int square = Bitboard.square(posY, posX);
+        int count = originStart[square + 1] - originStart[square];
+        System.arraycopy(movesByOrigin, originStart[square], moves, 0, count);
+        return count;
+    }
+
+    /**
+     * Writes all legal moves of the player to move into moves (see Move).
+     * @return number of moves
+     */
+    public int getValidMoves(int[] moves){
+        updateLegalMoves();
+        System.arraycopy(legalMoves, 0, moves, 0, legalMoveCount);
+        return legalMoveCount;
+    }
+
+    /**
+     * Gets the squares (see Bitboard) of the pieces of the player to move that have a
+     * legal move, one bit per square.
+     */
+    public int getMovablePieces(){
+        updateLegalMoves();
+        return movablePieces;
+    }
+
+    /**
+     * Generates the legal moves of the current state, unless already done for it.
+     */
+    private void updateLegalMoves(){
+        if (legalMovesState == state){
+            return;
+        }
+        legalMovesState = state;
+        legalMoveCount = state.generateMoves(legalMoves);
+        // group by origin square, keeping the generation order within a group
+        Arrays.fill(originStart, 0);
+        movablePieces = 0;
+        for (int i = 0; i < legalMoveCount; i++){
+            int from = Move.from(legalMoves[i]);
+            originStart[from + 1]++;
+            movablePieces |= 1 << from;
+        }
+        for (int square = 0; square < Bitboard.SQUARES; square++){
+            originStart[square + 1] += originStart[square];
+        }
+        int[] next = Arrays.copyOf(originStart, Bitboard.SQUARES);
+        for (int i = 0; i < legalMoveCount; i++){
+            movesByOrigin[next[Move.from(legalMoves[i])]++] = legalMoves[i];
+        }
+    }
+
+    /**
+     * Plays a legal move of the human (see getValidMoves).
+     */
+    public void playerMove(int move){
+        if (!isGameOver() && state.getTurn() == Player.HUMAN){
+            updateState(move, state.apply(move));
+        }
     }
 
     public void playerMove(BoardState newState){
-        if (!isGameOver() && state.peek().getTurn() == Player.HUMAN){
-            if(this.state.peek().pieceCount.get(Player.AI)==this.state.peek().kingCount.get(Player.AI)
-                    && this.state.peek().pieceCount.get(Player.HUMAN)==this.state.peek().kingCount.get(Player.HUMAN) ){
-                if(this.state.peek().kingCount.get(Player.HUMAN) == newState.kingCount.get(Player.HUMAN)){
-                    this.onlyKingsMoveCounter++;
-                }
-                else {
-                    this.onlyKingsMoveCounter =0;
-                }
-            }
-            updateState(newState);
-            ArrayList<BoardState> successors = newState.getSuccessors();
-            if(successors.size()==0){
-                this.playerBlocked =true;
-            }
+        if (!isGameOver() && state.getTurn() == Player.HUMAN){
+            updateState(findMove(newState), newState);
         }
     }
 
     public void aiMove(){
         // update state with AI move
-            if (!isGameOver() && state.peek().getTurn() == Player.AI){
-                BoardState newState = ai.move(this.state.peek());
-                if(this.state.peek().pieceCount.get(Player.AI)==this.state.peek().kingCount.get(Player.AI)
-                        && this.state.peek().pieceCount.get(Player.HUMAN)==this.state.peek().kingCount.get(Player.HUMAN) ){
-                    if(this.state.peek().kingCount.get(Player.AI) == newState.kingCount.get(Player.AI)){
-                        this.onlyKingsMoveCounter++;
-                    }
-                    else {
-                        this.onlyKingsMoveCounter =0;
-                    }
-                }
-                updateState(newState);
-                ArrayList<BoardState> successors = newState.getSuccessors();
-                if(successors.size()==0){
-                    this.playerBlocked =true;
-                }
+        if (!isGameOver() && state.getTurn() == Player.AI){
+            aiMove(ai.move(this.state, limits));
+        }
+    }
+
+    /**
+     * Computes the AI's move in the given state without changing the game, so it can run
+     * on a background thread. Returns null if the search was stopped by stopAi.
+     */
+    public BoardState searchAiMove(BoardState current){
+        return ai.move(current, limits);
+    }
+
+    /**
+     * Plays an AI move computed by searchAiMove.
+     */
+    public void aiMove(BoardState newState){
+        if (!isGameOver() && state.getTurn() == Player.AI){
+            updateState(findMove(newState), newState);
+        }
+    }
+
+    /**
+     * Cancels a running AI search (see searchAiMove); may be called from any thread.
+     */
+    public void stopAi(){
+        ai.stop();
+    }
+
+    /**
+     * Allows AI searches again after stopAi.
+     */
+    public void resumeAi(){
+        ai.resume();
+    }
+
+    /**
+     * Releases the AI's threads and tables when the game is not played any more; no AI
+     * search may be running.
+     */
+    public void closeAi(){
+        ai.close();
+    }
+
+    public void setSearchListener(SearchListener listener){
+        ai.setSearchListener(listener);
+    }
+
+    /**
+     * Gets the positions the AI may have to move in after the human's reply to the given
+     * state, the reply the AI expects first.
+     */
+    public List<BoardState> getPonderPositions(BoardState state){
+        return ai.expectedReplies(state);
+    }
+
+    /**
+     * Gets the statistics of the AI's last search, null before the first one. With
+     * pondering this may be the search of a position not played; Engine.Listener.onMove
+     * gets the statistics of the move played.
+     */
+    public SearchStats getSearchStats(){
+        return ai.getLastStats();
+    }
+
+    /**
+     * Finds the legal move leading from the current state to the given one.
+     */
+    private int findMove(BoardState newState){
+        updateLegalMoves();
+        for (int i = 0; i < legalMoveCount; i++){
+            if (state.apply(legalMoves[i]).getHash() == newState.getHash()){
+                return legalMoves[i];
             }
+        }
+        throw new IllegalArgumentException("Not reachable by a legal move");
+    }
+
+    private void updateState(int move, BoardState newState){
+        onlyKingsMoveCounter = onlyKingsMoveCounter(state, newState, onlyKingsMoveCounter);
+        state = newState;
+        history.add(move, newState, onlyKingsMoveCounter);
+        playerBlocked = isBlocked();
+    }
+
+    /**
+     * Has the player to move no legal move?
+     */
+    private boolean isBlocked(){
+        updateLegalMoves();
+        return legalMoveCount == 0;
     }
 
-    private void updateState(BoardState newState){
-        state.push(newState);
-        if(state.size() > memory){
-            state.remove(0);
+    /**
+     * Counts the moves made with only kings on the board in which the moving player
+     * got no new king; a draw is called after ONLY_KINGS_MOVES of them. BoardState and
+     * SearchBoard count the same moves (see getOnlyKingsMoves).
+     */
+    private static int onlyKingsMoveCounter(BoardState state, BoardState newState, int counter){
+        if (state.getPieceCount(Player.AI) == state.getKingCount(Player.AI)
+                && state.getPieceCount(Player.HUMAN) == state.getKingCount(Player.HUMAN)){
+            Player player = state.getTurn();
+            if (state.getKingCount(player) == newState.getKingCount(player)){
+                return counter + 1;
+            }
+            return 0;
         }
+        return counter;
     }
 
     public BoardState getState() {
-        return state.peek();
+        return state;
     }
 
 
     public Player getTurn() {
-        return state.peek().getTurn();
+        return state.getTurn();
     }
 
     public boolean isGameOver(){
-        if (state.peek().isGameOver()){
+        if (state.isGameOver()){
             // get win / lose status
-            if(state.peek().pieceCount.get(Player.HUMAN) > state.peek().pieceCount.get(Player.AI)){
+            if(state.getPieceCount(Player.HUMAN) > state.getPieceCount(Player.AI)){
                 this.winner = "HUMAN";
             }
             else {
@@ -103,12 +267,12 @@ public class Game{
             }
             return true;
         }
-        else if (this.onlyKingsMoveCounter>=20) {
+        else if (this.onlyKingsMoveCounter >= ONLY_KINGS_MOVES) {
             this.winner = "TIE";
             return true;
         }
         else if (playerBlocked == true) {
-            if(state.peek().getTurn() == Player.HUMAN){
+            if(state.getTurn() == Player.HUMAN){
                 this.winner ="AI";
             }
             else{
@@ -119,6 +283,16 @@ public class Game{
         return false;
     }
 
+    /**
+     * Gets the winner of a finished game, null for a tie.
+     */
+    public Player getWinner(){
+        if (!isGameOver() || winner == "TIE"){
+            return null;
+        }
+        return winner == "AI" ? Player.AI : Player.HUMAN;
+    }
+
     public String getGameOverMessage(){
         String result = "Game Over. ";
         if (winner == "HUMAN"){
@@ -133,13 +307,62 @@ public class Game{
         return result;
     }
 
+    /**
+     * Takes back moves up to the human's previous turn.
+     */
     public void undo(){
-        if (state.size() > 2){
-            state.pop();
-            while(state.peek().getTurn() == Player.AI){
-                state.pop();
+        int ply = history.getPly() - 1;
+        while (ply > 0 && positionAt(ply).getTurn() == Player.AI){
+            ply--;
+        }
+        if (ply >= 0 && positionAt(ply).getTurn() == Player.HUMAN){
+            goTo(ply);
+        }
+    }
+
+    /**
+     * Replays undone moves up to the human's next turn or the last move played.
+     */
+    public void redo(){
+        while (history.getPly() < history.getLength()){
+            int move = history.getMove(history.getPly());
+            BoardState newState = state.apply(move);
+            onlyKingsMoveCounter = onlyKingsMoveCounter(state, newState, onlyKingsMoveCounter);
+            state = newState;
+            history.setPly(history.getPly() + 1);
+            if (state.getTurn() == Player.HUMAN){
+                break;
             }
         }
+        playerBlocked = isBlocked();
+    }
+
+    /**
+     * Makes the position at the given ply the current state.
+     */
+    private void goTo(int ply){
+        int counter = history.snapshotCounter(ply);
+        BoardState position = history.snapshot(ply);
+        for (int i = GameHistory.snapshotPly(ply); i < ply; i++){
+            BoardState next = position.apply(history.getMove(i));
+            counter = onlyKingsMoveCounter(position, next, counter);
+            position = next;
+        }
+        state = position;
+        onlyKingsMoveCounter = counter;
+        playerBlocked = isBlocked();
+        history.setPly(ply);
+    }
+
+    /**
+     * Gets the position at the given ply without changing the game.
+     */
+    private BoardState positionAt(int ply){
+        BoardState position = history.snapshot(ply);
+        for (int i = GameHistory.snapshotPly(ply); i < ply; i++){
+            position = position.apply(history.getMove(i));
+        }
+        return position;
     }
 
 }
@@ -0,0 +1,103 @@
+package main.game;
+
+import java.util.Arrays;
+
+/**
+ * Moves of a game, stored as move ints (see Move) with a snapshot of the position every
+ * SNAPSHOT_INTERVAL plies, so the history costs a few bytes per ply and has no limit.
+ * Going back or forth restores the nearest snapshot at or before the wanted ply and replays
+ * the moves from there. Moves after the current ply are kept for redo until a different
+ * move is played.
+ */
+class GameHistory {
+
+    // plies between two stored positions
+    static final int SNAPSHOT_INTERVAL = 32;
+
+    // moves played, only the first 'length' are valid
+    private int[] moves = new int[64];
+    private int length;
+    // position and draw counter (see Game) at every multiple of SNAPSHOT_INTERVAL plies
+    private BoardState[] snapshots = new BoardState[4];
+    private int[] snapshotCounters = new int[4];
+    // number of moves played up to the current position
+    private int ply;
+
+    GameHistory(BoardState initial){
+        snapshots[0] = initial;
+    }
+
+    /**
+     * Records a move played in the current position, which is at the given ply, dropping
+     * the moves undone before unless the same move is played again.
+     * @param state position after the move
+     * @param counter draw counter after the move
+     */
+    void add(int move, BoardState state, int counter){
+        if (ply < length && moves[ply] == move){
+            ply++;
+            return;
+        }
+        if (ply == moves.length){
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[ply++] = move;
+        length = ply;
+        if (ply % SNAPSHOT_INTERVAL == 0){
+            int index = ply / SNAPSHOT_INTERVAL;
+            if (index == snapshots.length){
+                snapshots = Arrays.copyOf(snapshots, index * 2);
+                snapshotCounters = Arrays.copyOf(snapshotCounters, index * 2);
+            }
+            snapshots[index] = state;
+            snapshotCounters[index] = counter;
+        }
+    }
+
+    /**
+     * Number of moves played up to the current position.
+     */
+    int getPly(){
+        return ply;
+    }
+
+    /**
+     * Number of moves recorded, including the ones that can be redone.
+     */
+    int getLength(){
+        return length;
+    }
+
+    /**
+     * Gets the move leading from the given ply to the next.
+     */
+    int getMove(int ply){
+        return moves[ply];
+    }
+
+    /**
+     * Makes the given ply, at most getLength(), the current position.
+     */
+    void setPly(int ply){
+        if (ply < 0 || ply > length){
+            throw new IllegalArgumentException("No such ply " + ply);
+        }
+        this.ply = ply;
+    }
+
+    /**
+     * Gets the snapshot at or before the given ply; replaying the moves from
+     * snapshotPly(ply) on gives the position at the ply.
+     */
+    BoardState snapshot(int ply){
+        return snapshots[ply / SNAPSHOT_INTERVAL];
+    }
+
+    int snapshotCounter(int ply){
+        return snapshotCounters[ply / SNAPSHOT_INTERVAL];
+    }
+
+    static int snapshotPly(int ply){
+        return ply - ply % SNAPSHOT_INTERVAL;
+    }
+}
@@ -0,0 +1,22 @@
+package main.game;
+
+/**
+ * Evaluations the AI can score positions with.
+ */
+public enum Heuristic {
+    // piece count, kings counted twice (the original heuristic)
+    MATERIAL(1),
+    // piece-square tables, back rank guard, king centralization and mobility (see Evaluation)
+    PIECE_SQUARE(Evaluation.MAN);
+
+    // score of a man, the unit the search's score margins are taken from
+    private final int manValue;
+
+    Heuristic(int manValue){
+        this.manValue = manValue;
+    }
+
+    int getManValue(){
+        return manValue;
+    }
+}
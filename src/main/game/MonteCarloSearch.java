@@ -0,0 +1,477 @@
+package main.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo tree search (UCT) engine, see SearchAlgorithm.MCTS. Every worker grows its own tree from the root
+ * (root parallelism, no locking) by repeatedly walking down the most promising moves,
+ * adding one new position and playing random moves from it. The move visited most often
+ * over all trees is played. Trees are kept between moves: a later search starting from a
+ * position already in a tree continues with that subtree.
+ *
+ * Playouts are random except that promotions are always taken. A playout still undecided
+ * after PLAYOUT_PLIES moves is scored with the piece-square evaluation, and positions in
+ * the endgame database end the playout with their exact result. Game's tie rule for
+ * moves with only kings ends a playout as a tie.
+ */
+public class MonteCarloSearch implements SearchEngine {
+
+    // weight of exploring rarely visited moves against exploiting good ones
+    private static final double EXPLORATION = 1.0;
+    // moves a playout is played for before the position is evaluated instead
+    private static final int PLAYOUT_PLIES = 60;
+    // evaluation difference that counts as a 73% chance of winning (logistic scale)
+    private static final double EVALUATION_SCALE = 100;
+    // playouts per move if neither a playout nor a time limit is set
+    private static final long DEFAULT_PLAYOUTS = 20000;
+    // positions in all trees together; once a tree reaches its share it stops growing but
+    // playouts go on
+    private static final int MAX_TREE_SIZE = 1 << 20;
+    // moves below the old root searched for the new root when reusing a tree
+    private static final int REUSE_PLIES = 6;
+    // most playouts a worker runs between two checks of the time limit and the budget
+    private static final int CHECK_INTERVAL = 64;
+
+    /**
+     * A position in the tree, reached by the move of mover.
+     */
+    private static final class Node {
+        private Node parent;
+        private final int move;
+        private final Player mover;
+        private final long hash;
+        // children created so far, and the moves without a child yet (null until visited)
+        private Node[] children;
+        private int childCount;
+        private int[] untried;
+        private int untriedCount;
+        // playouts through this position and their total result for mover
+        private int visits;
+        private double reward;
+
+        private Node(Node parent, int move, Player mover, long hash){
+            this.parent = parent;
+            this.move = move;
+            this.mover = mover;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Tree and board of one thread.
+     */
+    private final class Worker {
+        private Node root;
+        private int treeSize;
+        private SearchBoard board;
+        private final Random random;
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        private int maxPly;
+        // playouts this worker still has to run in the running seeded search
+        private long share;
+
+        private Worker(long seed){
+            random = new Random(seed);
+        }
+
+        /**
+         * Runs playouts until the search is stopped or the budget is used up.
+         */
+        private void run(){
+            while (!cancelled && System.nanoTime() <= deadline){
+                int batch = claim();
+                if (batch == 0){
+                    return;
+                }
+                for (int i = 0; i < batch; i++){
+                    playout();
+                }
+            }
+        }
+
+        /**
+         * Takes the next playouts to run off the budget before running them, so all
+         * workers together run no more than the budget.
+         * @return playouts to run, at most CHECK_INTERVAL, 0 if the budget is used up
+         */
+        private int claim(){
+            if (playoutBudget == 0){
+                playouts.addAndGet(CHECK_INTERVAL);
+                return CHECK_INTERVAL;
+            }
+            if (deterministic){
+                // seeded workers run a fixed share each, so the result does not depend on
+                // how fast each worker was scheduled
+                int batch = (int) Math.min(CHECK_INTERVAL, share);
+                share -= batch;
+                playouts.addAndGet(batch);
+                return batch;
+            }
+            while (true){
+                long claimed = playouts.get();
+                int batch = (int) Math.min(CHECK_INTERVAL, playoutBudget - claimed);
+                if (batch <= 0){
+                    return 0;
+                }
+                if (playouts.compareAndSet(claimed, claimed + batch)){
+                    return batch;
+                }
+            }
+        }
+
+        /**
+         * One selection, expansion, simulation and backpropagation step.
+         */
+        private void playout(){
+            Node node = root;
+            // selection: follow the best child while all moves have been tried
+            while (node.untried != null && node.untriedCount == 0 && node.childCount > 0){
+                node = select(node);
+                board.makeMove(node.move);
+            }
+            // expansion: add one untried move
+            if (node.untried == null){
+                int count = board.generateMoves(moves);
+                node.untried = new int[count];
+                System.arraycopy(moves, 0, node.untried, 0, count);
+                node.untriedCount = count;
+                node.children = new Node[count];
+            }
+            if (node.untriedCount > 0 && treeSize < maxTreeSize
+                    && board.getPly() < SearchBoard.MAX_PLY - PLAYOUT_PLIES - 1){
+                int index = random.nextInt(node.untriedCount);
+                int move = node.untried[index];
+                node.untried[index] = node.untried[--node.untriedCount];
+                Player mover = board.getTurn();
+                board.makeMove(move);
+                Node child = new Node(node, move, mover, board.getHash());
+                node.children[node.childCount++] = child;
+                treeSize++;
+                node = child;
+            }
+            if (board.getPly() > maxPly){
+                maxPly = board.getPly();
+            }
+            // simulation, then back to the root
+            double result = simulate();
+            while (board.getPly() > 0){
+                board.unmakeMove();
+            }
+            // backpropagation
+            for (Node n = node; n != null; n = n.parent){
+                n.visits++;
+                n.reward += n.mover == player ? result : 1 - result;
+            }
+        }
+
+        /**
+         * Child with the highest upper confidence bound.
+         */
+        private Node select(Node node){
+            double logVisits = Math.log(node.visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < node.childCount; i++){
+                Node child = node.children[i];
+                double value = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue){
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays random moves from the current position.
+         * @return result for the searching player, 1 for a win, 0.5 for a tie and 0 for a loss
+         */
+        private double simulate(){
+            int end = Math.min(board.getPly() + PLAYOUT_PLIES, SearchBoard.MAX_PLY - 1);
+            while (board.getPly() < end){
+                if (board.getOnlyKingsMoves() >= Game.ONLY_KINGS_MOVES){
+                    return 0.5;
+                }
+                if (database != null){
+                    int score = database.probe(board);
+                    if (score != EndgameDatabase.UNKNOWN){
+                        if (score == 0){
+                            return 0.5;
+                        }
+                        return (score > 0) == (board.getTurn() == player) ? 1 : 0;
+                    }
+                }
+                int count = board.generateMoves(moves);
+                if (count == 0){
+                    // player to move loses
+                    return board.getTurn() == player ? 0 : 1;
+                }
+                int move = moves[random.nextInt(count)];
+                for (int i = 0; i < count; i++){
+                    if (Move.isPromotion(moves[i])){
+                        move = moves[i];
+                        break;
+                    }
+                }
+                board.makeMove(move);
+            }
+            return 1 / (1 + Math.exp(-board.evaluate(player) / EVALUATION_SCALE));
+        }
+    }
+
+    // which player the search is with respect to
+    private final Player player;
+    // exact values of positions with few pieces, null if there is no database file
+    private final EndgameDatabase database;
+    // moves of the first positions of the game, null if there is no book file
+    private final OpeningBook book;
+    // positions per tree, the workers' share of MAX_TREE_SIZE
+    private final int maxTreeSize;
+    // playouts run in parallel on this pool (null for a single worker)
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+    // is the search seeded, i.e. must it be deterministic?
+    private final boolean deterministic;
+
+    // budget of the running search
+    private final AtomicLong playouts = new AtomicLong();
+    private volatile long playoutBudget;
+    private volatile long deadline;
+    // has the search been cancelled from outside? (see stop)
+    private volatile boolean cancelled;
+    // statistics of the last move
+    private volatile SearchStats lastStats;
+
+    /**
+     * Creates a Monte Carlo search playing for the given player, with one tree per thread
+     * of the config. The seed of the config seeds the playouts.
+     */
+    public MonteCarloSearch(SearchConfig config, Player player){
+        config.validate();
+        this.player = player;
+        database = EndgameDatabase.load(config.getEndgameDatabase());
+        book = OpeningBook.load(config.getOpeningBook());
+        deterministic = config.getSeed() != 0;
+        Random random = deterministic ? new Random(config.getSeed()) : new Random();
+        workers = new Worker[config.getThreads()];
+        for (int i = 0; i < workers.length; i++){
+            workers[i] = new Worker(random.nextLong());
+        }
+        // split evenly, not counted together, so seeded searches do not depend on the
+        // speed of the threads
+        maxTreeSize = MAX_TREE_SIZE / workers.length;
+        pool = workers.length > 1 ? new ForkJoinPool(workers.length) : null;
+    }
+
+    /**
+     * Plays the only legal move or the opening book move, or else searches until the
+     * playout or time limit is reached. The depth and node limits do not apply.
+     */
+    @Override
+    public BoardState move(BoardState state, SearchLimits limits){
+        long start = System.nanoTime();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        int move = count == 1 ? moves[0] : Move.NONE;
+        if (move == Move.NONE && book != null){
+            move = book.probe(state.getHash(), moves, count);
+        }
+        if (move != Move.NONE){
+            lastStats = SearchStats.unsearched(System.nanoTime() - start);
+        }
+        else {
+            move = search(state, limits.getPlayouts(), limits.getTimeMs());
+        }
+        return move == Move.NONE ? null : state.apply(move);
+    }
+
+    /**
+     * Searches the position until the playout budget or the time is used up.
+     * @param budget playouts, 0 for no limit
+     * @param timeMs time in milliseconds, 0 for no limit
+     * @return most visited move, or Move.NONE if the search was cancelled
+     */
+    private int search(BoardState state, long budget, long timeMs){
+        long start = System.nanoTime();
+        if (cancelled){
+            return Move.NONE;
+        }
+        playouts.set(0);
+        playoutBudget = budget == 0 && timeMs == 0 ? DEFAULT_PLAYOUTS : budget;
+        deadline = timeMs > 0 ? start + timeMs * 1000000 : Long.MAX_VALUE;
+        for (int i = 0; i < workers.length; i++){
+            Worker worker = workers[i];
+            worker.root = reuse(worker.root, state.getHash());
+            if (worker.root == null){
+                worker.root = new Node(null, Move.NONE, state.getTurn().getOpposite(), state.getHash());
+            }
+            worker.treeSize = size(worker.root);
+            worker.board = new SearchBoard(state);
+            worker.maxPly = 0;
+            worker.share = playoutBudget / workers.length + (i < playoutBudget % workers.length ? 1 : 0);
+        }
+        if (pool == null){
+            workers[0].run();
+        }
+        else {
+            List<Callable<Void>> tasks = new ArrayList<>(workers.length);
+            for (final Worker worker : workers){
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        worker.run();
+                        return null;
+                    }
+                });
+            }
+            try {
+                for (Future<Void> result : pool.invokeAll(tasks)){
+                    result.get();
+                }
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return Move.NONE;
+            }
+            catch (ExecutionException e){
+                throw new RuntimeException("Error in parallel search", e.getCause());
+            }
+        }
+        if (cancelled){
+            return Move.NONE;
+        }
+        int move = mostVisited(state);
+        int maxPly = 0;
+        long treeSize = 0;
+        for (Worker worker : workers){
+            maxPly = Math.max(maxPly, worker.maxPly);
+            treeSize += worker.treeSize;
+        }
+        lastStats = SearchStats.monteCarlo(playouts.get(), maxPly, treeSize, System.nanoTime() - start);
+        return move;
+    }
+
+    /**
+     * Lists the moves of the root with their visits summed over all trees and returns the
+     * most visited one.
+     */
+    private int mostVisited(BoardState state){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        long[] visits = new long[count];
+        for (Worker worker : workers){
+            Node root = worker.root;
+            for (int i = 0; i < root.childCount; i++){
+                for (int j = 0; j < count; j++){
+                    if (moves[j] == root.children[i].move){
+                        visits[j] += root.children[i].visits;
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < count; i++){
+            if (visits[i] > visits[best]){
+                best = i;
+            }
+        }
+        return moves[best];
+    }
+
+    /**
+     * Finds the position with the given hash in the tree, a few moves below the root, and
+     * makes it the new root.
+     * @return the new root, or null if not found
+     */
+    private Node reuse(Node root, long hash){
+        Node node = find(root, hash, REUSE_PLIES);
+        if (node != null){
+            node.parent = null;
+        }
+        return node;
+    }
+
+    private static int size(Node node){
+        int size = 1;
+        for (int i = 0; i < node.childCount; i++){
+            size += size(node.children[i]);
+        }
+        return size;
+    }
+
+    private static Node find(Node node, long hash, int plies){
+        if (node == null){
+            return null;
+        }
+        if (node.hash == hash){
+            return node;
+        }
+        if (plies == 0){
+            return null;
+        }
+        for (int i = 0; i < node.childCount; i++){
+            Node found = find(node.children[i], hash, plies - 1);
+            if (found != null){
+                return found;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SearchStats getLastStats(){
+        return lastStats;
+    }
+
+    /**
+     * Monte Carlo search does not ponder: its trees, kept between moves, already hold the
+     * replies it has looked at.
+     */
+    @Override
+    public List<BoardState> expectedReplies(BoardState state){
+        return Collections.emptyList();
+    }
+
+    /**
+     * Forgets all trees.
+     */
+    @Override
+    public void clear(){
+        for (Worker worker : workers){
+            worker.root = null;
+        }
+    }
+
+    @Override
+    public void stop(){
+        cancelled = true;
+    }
+
+    @Override
+    public void close(){
+        if (pool != null){
+            pool.shutdown();
+        }
+        clear();
+    }
+
+    @Override
+    public void resume(){
+        cancelled = false;
+    }
+
+    /**
+     * Monte Carlo search has no iterations to report.
+     */
+    @Override
+    public void setSearchListener(SearchListener listener){
+    }
+}
@@ -0,0 +1,83 @@
+package main.game;
+
+/**
+ * Compact int encoding of a single move (one step or one jump of a multi-jump).
+ * Bits 0-4 hold the origin square, bits 5-9 the destination square and bits 10-14
+ * the captured square; the remaining flags mark captures, promotions and captured kings.
+ * Squares are numbered as in Bitboard.
+ */
+public final class Move {
+
+    // no move; never a legal move since origin and destination are equal
+    public static final int NONE = 0;
+    // upper bound on the number of legal moves in any position, the size move lists need
+    public static final int MAX_MOVES = MoveGenerator.MAX_MOVES;
+
+    private static final int SQUARE_MASK = 0x1F;
+    private static final int TO_SHIFT = 5;
+    private static final int CAPTURED_SHIFT = 10;
+    private static final int CAPTURE = 1 << 15;
+    private static final int PROMOTION = 1 << 16;
+    private static final int CAPTURED_KING = 1 << 17;
+
+    private Move(){}
+
+    /**
+     * Non-jump move from one square to another.
+     */
+    public static int create(int from, int to){
+        return from | (to << TO_SHIFT);
+    }
+
+    /**
+     * Jump from one square to another over the captured square.
+     */
+    public static int capture(int from, int to, int captured, boolean capturedKing){
+        int move = create(from, to) | (captured << CAPTURED_SHIFT) | CAPTURE;
+        if (capturedKing){
+            move |= CAPTURED_KING;
+        }
+        return move;
+    }
+
+    /**
+     * Marks the move as crowning the moving man.
+     */
+    static int promote(int move){
+        return move | PROMOTION;
+    }
+
+    public static int from(int move){
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move){
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    public static int captured(int move){
+        return (move >>> CAPTURED_SHIFT) & SQUARE_MASK;
+    }
+
+    public static boolean isCapture(int move){
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move){
+        return (move & PROMOTION) != 0;
+    }
+
+    public static boolean capturesKing(int move){
+        return (move & CAPTURED_KING) != 0;
+    }
+
+    /**
+     * Readable form using 1-based square numbers, e.g. "9-13" or "9x18".
+     */
+    public static String toString(int move){
+        if (move == NONE){
+            return "none";
+        }
+        return (from(move) + 1) + (isCapture(move) ? "x" : "-") + (to(move) + 1);
+    }
+}
@@ -0,0 +1,77 @@
+package main.game;
+
+/**
+ * Generates moves of a bitboard position into a caller supplied array (see Move).
+ */
+final class MoveGenerator {
+
+    // upper bound on the number of moves in any position
+    static final int MAX_MOVES = 64;
+
+    private MoveGenerator(){}
+
+    /**
+     * Landing squares of all jumps available to the given pieces.
+     */
+    static int jumpTargets(int pieces, int opponent, int empty, int kings, Player player){
+        int targets = 0;
+        for (int dir = 0; dir < 4; dir++){
+            int movers = Bitboard.movers(pieces, kings, player, dir);
+            targets |= Bitboard.step(Bitboard.step(movers, dir) & opponent, dir) & empty;
+        }
+        return targets;
+    }
+
+    /**
+     * Destination squares of all non-jump moves available to the given pieces.
+     */
+    static int stepTargets(int pieces, int empty, int kings, Player player){
+        int targets = 0;
+        for (int dir = 0; dir < 4; dir++){
+            targets |= Bitboard.step(Bitboard.movers(pieces, kings, player, dir), dir) & empty;
+        }
+        return targets;
+    }
+
+    /**
+     * Writes all jump or non-jump moves of the given pieces into moves, starting at count.
+     * @return new number of moves in the array
+     */
+    static int generate(int pieces, int opponent, int empty, int kings, Player player, boolean jump,
+                        int[] moves, int count){
+        int promotionRow = Bitboard.promotionRow(player);
+        for (int dir = 0; dir < 4; dir++){
+            int movers = Bitboard.movers(pieces, kings, player, dir);
+            int back = Bitboard.opposite(dir);
+            int targets;
+            if (jump){
+                targets = Bitboard.step(Bitboard.step(movers, dir) & opponent, dir) & empty;
+            }
+            else {
+                targets = Bitboard.step(movers, dir) & empty;
+            }
+            while (targets != 0){
+                int to = Integer.numberOfTrailingZeros(targets);
+                int toBit = targets & -targets;
+                targets ^= toBit;
+                int move;
+                int fromBit;
+                if (jump){
+                    int capturedBit = Bitboard.step(toBit, back);
+                    fromBit = Bitboard.step(capturedBit, back);
+                    move = Move.capture(Integer.numberOfTrailingZeros(fromBit), to,
+                            Integer.numberOfTrailingZeros(capturedBit), (kings & capturedBit) != 0);
+                }
+                else {
+                    fromBit = Bitboard.step(toBit, back);
+                    move = Move.create(Integer.numberOfTrailingZeros(fromBit), to);
+                }
+                if ((kings & fromBit) == 0 && (toBit & promotionRow) != 0){
+                    move = Move.promote(move);
+                }
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,108 @@
+package main.game;
+
+import java.util.Arrays;
+
+/**
+ * Orders moves so that alpha-beta searches the most promising ones first:
+ * the transposition table move, captures by material gained, promotions, the killer
+ * moves of the ply and finally quiet moves by their history score.
+ * Each searcher has its own instance, so no synchronization is needed.
+ */
+class MoveOrdering {
+
+    // ordering scores of the move classes, history scores stay below KILLER
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 24;
+    private static final int PROMOTION = 1 << 22;
+    private static final int KILLER = 1 << 20;
+    private static final int HISTORY_LIMIT = KILLER - 1;
+
+    // two most recent quiet moves that caused a cutoff at every ply
+    private final int[][] killers = new int[SearchBoard.MAX_PLY][2];
+    // cutoff counts weighted by depth, per player, origin and destination square
+    private final int[][][] history = new int[2][Bitboard.SQUARES][Bitboard.SQUARES];
+    // ordering scores of the list being sorted
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Forgets killers of the previous search and ages the history scores.
+     */
+    void newSearch(){
+        for (int[] plyKillers : killers){
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[][] playerHistory : history){
+            for (int[] fromHistory : playerHistory){
+                for (int to = 0; to < Bitboard.SQUARES; to++){
+                    fromHistory[to] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts moves from most to least promising.
+     * @param hashMove best move stored in the transposition table, or Move.NONE
+     */
+    void order(int[] moves, int count, int hashMove, int ply, Player player){
+        int[] plyKillers = killers[ply];
+        int[][] playerHistory = history[player.ordinal()];
+        for (int i = 0; i < count; i++){
+            int move = moves[i];
+            int score;
+            if (move == hashMove){
+                score = HASH_MOVE;
+            }
+            else if (Move.isCapture(move)){
+                // a captured king is worth two men
+                score = CAPTURE + (Move.capturesKing(move) ? 2 : 1) * 2 + (Move.isPromotion(move) ? 1 : 0);
+            }
+            else if (Move.isPromotion(move)){
+                score = PROMOTION;
+            }
+            else if (move == plyKillers[0]){
+                score = KILLER + 1;
+            }
+            else if (move == plyKillers[1]){
+                score = KILLER;
+            }
+            else {
+                score = playerHistory[Move.from(move)][Move.to(move)];
+            }
+            // insertion sort, keeps generation order of equal scores
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score){
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Records a move that caused a beta cutoff.
+     */
+    void cutoff(int move, int ply, int depth, Player player){
+        // captures and promotions are ordered first anyway
+        if (Move.isCapture(move) || Move.isPromotion(move)){
+            return;
+        }
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != move){
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[][] playerHistory = history[player.ordinal()];
+        int score = playerHistory[Move.from(move)][Move.to(move)] + depth * depth;
+        playerHistory[Move.from(move)][Move.to(move)] = score;
+        if (score > HISTORY_LIMIT){
+            for (int[] fromHistory : playerHistory){
+                for (int to = 0; to < Bitboard.SQUARES; to++){
+                    fromHistory[to] >>= 1;
+                }
+            }
+        }
+    }
+}
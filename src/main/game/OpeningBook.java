@@ -0,0 +1,110 @@
+package main.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Moves for the AI in the first positions of the game, built offline by OpeningBookBuilder
+ * and read through a memory-mapped file.
+ *
+ * The file holds a header followed by records of the position's Zobrist hash, the move
+ * (see Move) and its score from the AI's view, sorted by hash so a position is found by
+ * binary search.
+ */
+public class OpeningBook {
+
+    // "CKOB"
+    static final int MAGIC = 0x434B4F42;
+    static final int VERSION = 1;
+    // bytes of the header and of every record
+    static final int HEADER_SIZE = 12;
+    static final int RECORD_SIZE = 16;
+
+    private final ByteBuffer records;
+    private final int size;
+
+    private OpeningBook(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")){
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION){
+                throw new IOException("Not an opening book: " + file);
+            }
+            size = header.getInt(8);
+            records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) size * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Opens the book file.
+     * @return the book, or null if the file does not exist or cannot be read
+     */
+    public static OpeningBook load(String path){
+        File file = new File(path);
+        if (!file.isFile()){
+            return null;
+        }
+        try {
+            OpeningBook book = new OpeningBook(file);
+            System.out.println("Loaded opening book " + path + " (" + book.size + " positions)");
+            return book;
+        }
+        catch (IOException e){
+            System.out.println("Cannot load opening book " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Number of positions in the book.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Looks up the book move of a position.
+     * @param moves legal moves of the position, the book move must be one of them
+     * @return the book move, or Move.NONE if the position is not in the book
+     */
+    int probe(long hash, int[] moves, int count){
+        int record = find(hash);
+        if (record < 0){
+            return Move.NONE;
+        }
+        int move = records.getInt(record * RECORD_SIZE + 8);
+        // guards against hash collisions
+        for (int i = 0; i < count; i++){
+            if (moves[i] == move){
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Binary search for the record of a hash.
+     * @return record number, or -1 if there is none
+     */
+    private int find(long hash){
+        int low = 0;
+        int high = size - 1;
+        while (low <= high){
+            int middle = (low + high) >>> 1;
+            long key = records.getLong(middle * RECORD_SIZE);
+            if (key < hash){
+                low = middle + 1;
+            }
+            else if (key > hash){
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
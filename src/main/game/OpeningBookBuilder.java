@@ -0,0 +1,106 @@
+package main.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the opening book (see OpeningBook) with deep searches. Starting from a position,
+ * every move of the human is followed, while the AI only plays its best move, so the book
+ * covers every line the AI can meet in the first plies.
+ */
+public class OpeningBookBuilder {
+
+    private final AI ai;
+    private final SearchLimits limits;
+    // book move and score of every AI position searched, by hash
+    private final Map<Long, int[]> entries = new HashMap<>();
+    // most plies left with which each position was expanded
+    private final Map<Long, Integer> expanded = new HashMap<>();
+
+    /**
+     * @param depth depth of the searches choosing the AI's moves
+     */
+    public OpeningBookBuilder(int depth){
+        // an existing book must not choose the moves of the new one
+        ai = new AI(new SearchConfig().setOpeningBook(""), Player.AI);
+        limits = SearchLimits.depth(depth);
+    }
+
+    /**
+     * Adds the AI's moves of all positions up to plies moves after the state.
+     */
+    public void build(BoardState state, int plies){
+        if (plies == 0 || state.isGameOver()){
+            return;
+        }
+        Integer done = expanded.get(state.getHash());
+        if (done != null && done >= plies){
+            return;
+        }
+        expanded.put(state.getHash(), plies);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        if (state.getTurn() == Player.AI){
+            int[] entry = entries.get(state.getHash());
+            if (entry == null){
+                int move = ai.bestMove(state, limits);
+                entry = new int[]{move, ai.getLastScore()};
+                if (count > 1){
+                    entries.put(state.getHash(), entry);
+                    if (entries.size() % 100 == 0){
+                        System.out.println(entries.size() + " positions");
+                    }
+                }
+            }
+            build(state.apply(entry[0]), plies - 1);
+        }
+        else {
+            for (int i = 0; i < count; i++){
+                build(state.apply(moves[i]), plies - 1);
+            }
+        }
+    }
+
+    /**
+     * Releases the searching AI's threads and table; the builder can still write the book
+     * but not build more of it.
+     */
+    public void close(){
+        ai.close();
+    }
+
+    /**
+     * Number of positions in the book so far.
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * Writes the book sorted by hash.
+     */
+    public void write(String path) throws IOException {
+        long[] hashes = new long[entries.size()];
+        int i = 0;
+        for (long hash : entries.keySet()){
+            hashes[i++] = hash;
+        }
+        Arrays.sort(hashes);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))){
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(hashes.length);
+            for (long hash : hashes){
+                int[] entry = entries.get(hash);
+                out.writeLong(hash);
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package main.game;
+
+/**
+ * Ways the AI spreads its search over several threads (see SearchConfig.setThreads).
+ */
+public enum ParallelSearch {
+    // the root moves of every iteration are split among the threads
+    ROOT_SPLIT,
+    // every thread searches the whole tree, sharing results through the transposition table
+    LAZY_SMP
+}
@@ -2,6 +2,11 @@ package main.game;
 
 public class Piece {
 
+    // movements shared by all pieces, must not be modified
+    private static final int[] BOTH_WAYS = {-1, 1};
+    private static final int[] DOWN = {1};
+    private static final int[] UP = {-1};
+
     private Player player;
     private boolean king;
 
@@ -19,33 +24,22 @@ public class Piece {
     }
 
     /**
-     * Get possible y-direction movements
+     * Get possible y-direction movements (shared array, do not modify)
      * @return
      */
     public int[] getYMovements(){
-        int[] result = new int[]{};
         if (king){
-            result = new int[]{-1,1};
-        }
-        else{
-            switch (player){
-                case AI:
-                    result = new int[]{1};
-                    break;
-                case HUMAN:
-                    result = new int[]{-1};
-                    break;
-            }
+            return BOTH_WAYS;
         }
-        return result;
+        return player == Player.AI ? DOWN : UP;
     }
 
     /**
-     * Get possible x-direction movements
+     * Get possible x-direction movements (shared array, do not modify)
      * @return
      */
     public int[] getXMovements(){
-        return new int[]{-1,1};
+        return BOTH_WAYS;
     }
 
 }
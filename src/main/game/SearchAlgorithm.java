@@ -0,0 +1,13 @@
+package main.game;
+
+/**
+ * Tree searches the AI can choose its moves with.
+ */
+public enum SearchAlgorithm {
+    // minimax with alpha-beta pruning and a full window at every node
+    ALPHA_BETA,
+    // negamax principal variation search with aspiration windows and late move reductions
+    PVS,
+    // Monte Carlo tree search with random playouts (see MonteCarloSearch)
+    MCTS
+}
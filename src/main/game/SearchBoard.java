@@ -0,0 +1,265 @@
+package main.game;
+
+/**
+ * Mutable board used by the search. Moves are played with makeMove and taken back
+ * with unmakeMove, so a single instance walks up and down the whole search tree
+ * without allocating.
+ */
+public class SearchBoard {
+
+    // maximum number of moves that can be made on top of the starting position
+    public static final int MAX_PLY = 128;
+    // score of a won game, reduced by the ply at which it is won so faster wins score higher
+    public static final int WIN_SCORE = 30000;
+
+    // state of the board, one bit per dark square (see Bitboard)
+    private int aiPieces;
+    private int humanPieces;
+    private int kings;
+    // player's turn
+    private Player turn;
+    // square of the piece doing a multi-jump, -1 if none
+    private int jumpSquare;
+    // Zobrist hash of the position, updated on every move
+    private long hash;
+    // sum of the piece-square values of all pieces (see Evaluation), updated on every move
+    private int pieceScore;
+    // moves made with only kings on the board, see Game.ONLY_KINGS_MOVES
+    private int onlyKingsMoves;
+
+    // undo information for every move made
+    private final int[] moveStack = new int[MAX_PLY];
+    private final int[] jumpSquareStack = new int[MAX_PLY];
+    private final Player[] turnStack = new Player[MAX_PLY];
+    private final long[] hashStack = new long[MAX_PLY];
+    private final int[] pieceScoreStack = new int[MAX_PLY];
+    private final int[] onlyKingsMovesStack = new int[MAX_PLY];
+    private int ply;
+
+    public SearchBoard(BoardState state){
+        aiPieces = state.aiPieces;
+        humanPieces = state.humanPieces;
+        kings = state.kings;
+        turn = state.getTurn();
+        jumpSquare = state.jumpSquare;
+        hash = state.getHash();
+        pieceScore = Evaluation.pieces(aiPieces, humanPieces, kings);
+        onlyKingsMoves = state.getOnlyKingsMoves();
+    }
+
+    SearchBoard(){
+        turn = Player.AI;
+        jumpSquare = -1;
+    }
+
+    /**
+     * Replaces the position, forgetting all moves made.
+     */
+    void setPosition(int aiPieces, int humanPieces, int kings, Player turn){
+        this.aiPieces = aiPieces;
+        this.humanPieces = humanPieces;
+        this.kings = kings;
+        this.turn = turn;
+        jumpSquare = -1;
+        hash = Zobrist.hash(aiPieces, humanPieces, kings, turn, jumpSquare);
+        pieceScore = Evaluation.pieces(aiPieces, humanPieces, kings);
+        onlyKingsMoves = 0;
+        ply = 0;
+    }
+
+    /**
+     * Writes the legal moves of the player to move into moves (jumps are forced).
+     * @return number of moves
+     */
+    public int generateMoves(int[] moves){
+        int pieces = jumpSquare >= 0 ? 1 << jumpSquare : getPieces(turn);
+        int opponent = getPieces(turn.getOpposite());
+        int empty = ~(aiPieces | humanPieces);
+        boolean jump = MoveGenerator.jumpTargets(pieces, opponent, empty, kings, turn) != 0;
+        return MoveGenerator.generate(pieces, opponent, empty, kings, turn, jump, moves, 0);
+    }
+
+    /**
+     * Plays a legal move of the player to move.
+     */
+    public void makeMove(int move){
+        moveStack[ply] = move;
+        jumpSquareStack[ply] = jumpSquare;
+        turnStack[ply] = turn;
+        hashStack[ply] = hash;
+        pieceScoreStack[ply] = pieceScore;
+        onlyKingsMovesStack[ply] = onlyKingsMoves;
+        ply++;
+
+        if (((aiPieces | humanPieces) & ~kings) == 0){
+            onlyKingsMoves++;
+        }
+        Player player = turn;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int fromTo = (1 << from) | (1 << to);
+        boolean king = (kings & (1 << from)) != 0;
+        pieceScore += Evaluation.piece(player, king || Move.isPromotion(move), to)
+                - Evaluation.piece(player, king, from);
+        if (Move.isCapture(move)){
+            pieceScore -= Evaluation.piece(player.getOpposite(), Move.capturesKing(move), Move.captured(move));
+        }
+        hash ^= Zobrist.moveKey(move, player, (kings & (1 << from)) != 0) ^ Zobrist.turnKey(turn, jumpSquare);
+        // move piece
+        if (player == Player.AI){
+            aiPieces ^= fromTo;
+        }
+        else {
+            humanPieces ^= fromTo;
+        }
+        if ((kings & (1 << from)) != 0){
+            kings ^= fromTo;
+        }
+        else if (Move.isPromotion(move)){
+            kings |= 1 << to;
+        }
+        turn = player.getOpposite();
+        jumpSquare = -1;
+        if (Move.isCapture(move)){
+            // remove captured piece
+            int capturedBit = ~(1 << Move.captured(move));
+            aiPieces &= capturedBit;
+            humanPieces &= capturedBit;
+            kings &= capturedBit;
+            // same piece continues a multi-jump (not allowed if just converted into king)
+            if (!Move.isPromotion(move) && MoveGenerator.jumpTargets(1 << to, getPieces(turn),
+                    ~(aiPieces | humanPieces), kings, player) != 0){
+                turn = player;
+                jumpSquare = to;
+            }
+        }
+        hash ^= Zobrist.turnKey(turn, jumpSquare);
+    }
+
+    /**
+     * Takes back the most recent move.
+     */
+    public void unmakeMove(){
+        ply--;
+        int move = moveStack[ply];
+        turn = turnStack[ply];
+        jumpSquare = jumpSquareStack[ply];
+        hash = hashStack[ply];
+        pieceScore = pieceScoreStack[ply];
+        onlyKingsMoves = onlyKingsMovesStack[ply];
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.isCapture(move)){
+            // put captured piece back
+            int capturedBit = 1 << Move.captured(move);
+            if (turn == Player.AI){
+                humanPieces |= capturedBit;
+            }
+            else {
+                aiPieces |= capturedBit;
+            }
+            if (Move.capturesKing(move)){
+                kings |= capturedBit;
+            }
+        }
+        if (Move.isPromotion(move)){
+            kings &= ~(1 << to);
+        }
+        // move piece back
+        int fromTo = (1 << from) | (1 << to);
+        if (turn == Player.AI){
+            aiPieces ^= fromTo;
+        }
+        else {
+            humanPieces ^= fromTo;
+        }
+        if ((kings & (1 << to)) != 0){
+            kings ^= fromTo;
+        }
+    }
+
+    /**
+     * Compute heuristic indicating how desirable this position is to a given player.
+     * Unlike BoardState, won and lost positions score +/-(WIN_SCORE - ply).
+     */
+    public int computeHeuristic(Player player){
+        int pieces = getPieces(player);
+        int opponentPieces = getPieces(player.getOpposite());
+        if (opponentPieces == 0){
+            return WIN_SCORE - ply;
+        }
+        if (pieces == 0){
+            return -WIN_SCORE + ply;
+        }
+        return BoardState.heuristic1(pieces, opponentPieces, kings);
+    }
+
+    /**
+     * Piece-square evaluation of the position for a given player (see Evaluation): the
+     * incrementally kept piece values plus mobility. Won and lost positions score as in
+     * computeHeuristic.
+     */
+    public int evaluate(Player player){
+        if (aiPieces == 0 || humanPieces == 0){
+            return computeHeuristic(player);
+        }
+        int score = pieceScore + Evaluation.mobility(aiPieces, humanPieces, kings);
+        return player == Player.AI ? score : -score;
+    }
+
+    /**
+     * Must the player to move jump (including continuing a multi-jump)?
+     */
+    boolean hasJump(){
+        return jumpSquare >= 0 || MoveGenerator.jumpTargets(getPieces(turn), getPieces(turn.getOpposite()),
+                ~(aiPieces | humanPieces), kings, turn) != 0;
+    }
+
+    /**
+     * Is the board in a game over state?
+     */
+    public boolean isGameOver(){
+        return aiPieces == 0 || humanPieces == 0;
+    }
+
+    /**
+     * Gets the Zobrist hash of the position.
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    public Player getTurn(){
+        return turn;
+    }
+
+    /**
+     * Number of moves made on top of the starting position.
+     */
+    public int getPly(){
+        return ply;
+    }
+
+    int getPieces(Player player){
+        return player == Player.AI ? aiPieces : humanPieces;
+    }
+
+    int getKings(){
+        return kings;
+    }
+
+    /**
+     * Number of moves made with only kings on the board, see Game.ONLY_KINGS_MOVES.
+     */
+    int getOnlyKingsMoves(){
+        return onlyKingsMoves;
+    }
+
+    /**
+     * Square of the piece doing a multi-jump, -1 if none.
+     */
+    int getJumpSquare(){
+        return jumpSquare;
+    }
+}
@@ -0,0 +1,167 @@
+package main.game;
+
+/**
+ * Settings of one engine, read when the engine is created (see createEngine). The
+ * setters return the config, so a config can be set up in one expression:
+ * new SearchConfig().setThreads(1).setSeed(1).
+ */
+public class SearchConfig {
+
+    // tree search the engine chooses its moves with
+    private SearchAlgorithm algorithm = SearchAlgorithm.PVS;
+    // evaluation the engine scores positions at the end of its search with
+    private Heuristic heuristic = Heuristic.PIECE_SQUARE;
+    // does the engine follow pending jumps past its maximum depth before evaluating?
+    private boolean quiescence = true;
+    // are late quiet moves searched shallower first? (PVS only)
+    private boolean reductions = true;
+    // size of the engine's transposition table in megabytes
+    private int tableMb = 64;
+    // number of threads searching in parallel
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // how the threads share the search; Lazy SMP has not been measured to beat the root
+    // split on multi-core hardware yet (see main.tools.SearchScaling)
+    private ParallelSearch parallelism = ParallelSearch.ROOT_SPLIT;
+    // seed for choosing between equally good moves and for the playouts, 0 for a random seed
+    // (see setSeed for which seeded searches always choose the same move)
+    private long seed = 0;
+    // endgame database and opening book files used if they exist, "" for none
+    private String endgameDatabase = Settings.ENDGAME_DB;
+    private String openingBook = Settings.OPENING_BOOK;
+
+    /**
+     * Creates an engine with this configuration playing for the given player.
+     */
+    public SearchEngine createEngine(Player player){
+        if (algorithm == SearchAlgorithm.MCTS){
+            return new MonteCarloSearch(this, player);
+        }
+        return new AI(this, player);
+    }
+
+    public SearchAlgorithm getAlgorithm(){
+        return algorithm;
+    }
+
+    public SearchConfig setAlgorithm(SearchAlgorithm algorithm){
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    public Heuristic getHeuristic(){
+        return heuristic;
+    }
+
+    public SearchConfig setHeuristic(Heuristic heuristic){
+        this.heuristic = heuristic;
+        return this;
+    }
+
+    public boolean useQuiescence(){
+        return quiescence;
+    }
+
+    public SearchConfig setQuiescence(boolean quiescence){
+        this.quiescence = quiescence;
+        return this;
+    }
+
+    public boolean useReductions(){
+        return reductions;
+    }
+
+    /**
+     * Sets whether PVS searches late quiet moves shallower first (late move reductions).
+     */
+    public SearchConfig setReductions(boolean reductions){
+        this.reductions = reductions;
+        return this;
+    }
+
+    public int getTableMb(){
+        return tableMb;
+    }
+
+    public SearchConfig setTableMb(int tableMb){
+        this.tableMb = tableMb;
+        return this;
+    }
+
+    public int getThreads(){
+        return threads;
+    }
+
+    public SearchConfig setThreads(int threads){
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    public ParallelSearch getParallelism(){
+        return parallelism;
+    }
+
+    public SearchConfig setParallelism(ParallelSearch parallelism){
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * Seeds the engine. A seeded engine chooses the same moves every run when its searches
+     * are limited by depth (minimax) or by playouts (Monte Carlo) only; time and node
+     * limits depend on the machine's speed. With several threads a seeded minimax engine
+     * must split the root moves and, with PVS, search without reductions (see validate);
+     * every Monte Carlo worker runs its share of the playouts.
+     */
+    public SearchConfig setSeed(long seed){
+        this.seed = seed;
+        return this;
+    }
+
+    public String getEndgameDatabase(){
+        return endgameDatabase;
+    }
+
+    public SearchConfig setEndgameDatabase(String path){
+        this.endgameDatabase = path;
+        return this;
+    }
+
+    public String getOpeningBook(){
+        return openingBook;
+    }
+
+    public SearchConfig setOpeningBook(String path){
+        this.openingBook = path;
+        return this;
+    }
+
+    /**
+     * Checks that the settings can be used together.
+     * @throws IllegalArgumentException if the engine is seeded but its threads would make
+     * its moves depend on their scheduling: Lazy SMP helpers fill the shared table in
+     * scheduling order, and reductions depend on each thread's move ordering tables
+     */
+    public void validate(){
+        if (seed == 0 || threads == 1 || algorithm == SearchAlgorithm.MCTS){
+            return;
+        }
+        if (parallelism == ParallelSearch.LAZY_SMP){
+            throw new IllegalArgumentException("A seeded search on " + threads
+                    + " threads is not deterministic with " + parallelism + ", use " + ParallelSearch.ROOT_SPLIT);
+        }
+        if (algorithm == SearchAlgorithm.PVS && reductions){
+            throw new IllegalArgumentException("A seeded PVS search on " + threads
+                    + " threads is not deterministic with reductions, turn them off with setReductions(false)");
+        }
+    }
+
+    @Override
+    public String toString(){
+        return algorithm + ", " + heuristic + ", quiescence " + quiescence + ", reductions " + reductions
+                + ", table " + tableMb + " MB, " + threads + " threads (" + parallelism + "), seed " + seed;
+    }
+}
@@ -0,0 +1,55 @@
+package main.game;
+
+import java.util.List;
+
+/**
+ * Chooses the moves of one player: a position and search limits in, a move and its search
+ * statistics out. Every engine is configured when it is created (see SearchConfig), so
+ * engines with different settings can play in the same program.
+ */
+public interface SearchEngine {
+
+    /**
+     * Searches the engine's move in the state within the limits.
+     * @return the state after the move, or null if the search was stopped (see stop)
+     */
+    BoardState move(BoardState state, SearchLimits limits);
+
+    /**
+     * Statistics of the last move, null before the first move.
+     */
+    SearchStats getLastStats();
+
+    /**
+     * Lists the positions after every reply of the opponent to move in the state, the
+     * positions worth pondering, the reply the engine expects first.
+     */
+    List<BoardState> expectedReplies(BoardState state);
+
+    /**
+     * Forgets all positions searched before, e.g. when a new game starts.
+     */
+    void clear();
+
+    /**
+     * Cancels the running search (and any search started before resume is called),
+     * which makes move return null. May be called from any thread.
+     */
+    void stop();
+
+    /**
+     * Allows searches again after stop.
+     */
+    void resume();
+
+    /**
+     * Sets the receiver of progress reports of the searches, may be null.
+     */
+    void setSearchListener(SearchListener listener);
+
+    /**
+     * Stops the engine's worker threads and releases its tables; the engine must not be
+     * used afterwards. Must not be called while a search is running.
+     */
+    void close();
+}
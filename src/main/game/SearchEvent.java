@@ -0,0 +1,45 @@
+package main.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of one AI move search. Events cost next to nothing unless a
+ * recording is running, e.g. java -XX:StartFlightRecording=filename=checkers.jfr.
+ */
+@Name("checkers.Search")
+@Label("AI Search")
+@Category("Checkers")
+@Description("Search for one AI move")
+class SearchEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Max Ply")
+    int maxPly;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Leaf Evaluations")
+    long leafEvaluations;
+
+    @Label("Cutoffs")
+    long cutoffs;
+
+    @Label("First Move Cutoff Rate")
+    double firstMoveCutoffRate;
+
+    @Label("Table Hit Rate")
+    double tableHitRate;
+
+    @Label("Effective Branching Factor")
+    double branchingFactor;
+
+    @Label("Best Move")
+    String bestMove;
+}
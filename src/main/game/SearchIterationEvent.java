@@ -0,0 +1,29 @@
+package main.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of one iteration of an AI search (see SearchEvent).
+ */
+@Name("checkers.SearchIteration")
+@Label("AI Search Iteration")
+@Category("Checkers")
+@Description("One iterative deepening iteration of an AI search")
+class SearchIterationEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Score")
+    int score;
+
+    @Label("Best Move")
+    String bestMove;
+}
@@ -0,0 +1,59 @@
+package main.game;
+
+/**
+ * Limits of one engine search; the search ends at whichever limit is reached first.
+ * A limit of 0 means no limit.
+ */
+public final class SearchLimits {
+
+    // depth searched unless limited otherwise
+    public static final int DEFAULT_DEPTH = 7;
+    public static final SearchLimits DEFAULT = new SearchLimits(DEFAULT_DEPTH, 0, 0, 0);
+
+    // maximum depth of a minimax search
+    private final int depth;
+    // time per move in milliseconds
+    private final long timeMs;
+    // positions a minimax search may search per move
+    private final long nodes;
+    // playouts a Monte Carlo search may run per move
+    private final long playouts;
+
+    public SearchLimits(int depth, long timeMs, long nodes, long playouts){
+        if (depth < 1){
+            throw new IllegalArgumentException("Search depth must be at least 1: " + depth);
+        }
+        this.depth = depth;
+        this.timeMs = timeMs;
+        this.nodes = nodes;
+        this.playouts = playouts;
+    }
+
+    /**
+     * Limits of a search to the given depth only.
+     */
+    public static SearchLimits depth(int depth){
+        return new SearchLimits(depth, 0, 0, 0);
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getTimeMs(){
+        return timeMs;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public long getPlayouts(){
+        return playouts;
+    }
+
+    @Override
+    public String toString(){
+        return "depth " + depth + ", time " + timeMs + " ms, nodes " + nodes + ", playouts " + playouts;
+    }
+}
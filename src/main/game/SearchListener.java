@@ -0,0 +1,15 @@
+package main.game;
+
+/**
+ * Receives progress reports from a running AI search.
+ */
+public interface SearchListener {
+
+    /**
+     * Called by the searching thread after every completed iteration.
+     * @param depth depth of the completed iteration
+     * @param nodes nodes searched so far for this move
+     * @param bestMove best move found so far (see Move)
+     */
+    void onProgress(int depth, long nodes, int bestMove);
+}
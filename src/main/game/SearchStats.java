@@ -0,0 +1,163 @@
+package main.game;
+
+import java.util.Locale;
+
+/**
+ * Statistics of one AI search, see AI.getLastStats.
+ */
+public class SearchStats {
+
+    // depth of the last completed iteration, 0 if the move was not searched
+    private final int depth;
+    // deepest ply visited below the root
+    private final int maxPly;
+    private final long nodes;
+    // positions scored by the heuristic
+    private final long leafEvaluations;
+    // beta cutoffs, and those caused by the first move searched
+    private final long cutoffs;
+    private final long firstMoveCutoffs;
+    // transposition table lookups, and those that found the position
+    private final long tableProbes;
+    private final long tableHits;
+    // nodes and time of every completed iteration, indexed by depth - 1
+    private final long[] iterationNodes;
+    private final long[] iterationNanos;
+    private final long totalNanos;
+    // random games played by a Monte Carlo search, 0 for minimax
+    private final long playouts;
+
+    SearchStats(int depth, int maxPly, long nodes, long leafEvaluations, long cutoffs, long firstMoveCutoffs,
+                long tableProbes, long tableHits, long[] iterationNodes, long[] iterationNanos, long totalNanos){
+        this(depth, maxPly, nodes, leafEvaluations, cutoffs, firstMoveCutoffs, tableProbes, tableHits,
+                iterationNodes, iterationNanos, totalNanos, 0);
+    }
+
+    private SearchStats(int depth, int maxPly, long nodes, long leafEvaluations, long cutoffs, long firstMoveCutoffs,
+                        long tableProbes, long tableHits, long[] iterationNodes, long[] iterationNanos, long totalNanos,
+                        long playouts){
+        this.depth = depth;
+        this.maxPly = maxPly;
+        this.nodes = nodes;
+        this.leafEvaluations = leafEvaluations;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.iterationNodes = iterationNodes;
+        this.iterationNanos = iterationNanos;
+        this.totalNanos = totalNanos;
+        this.playouts = playouts;
+    }
+
+    /**
+     * Statistics of a move played without search (forced or from the opening book).
+     */
+    static SearchStats unsearched(long totalNanos){
+        return new SearchStats(0, 0, 0, 0, 0, 0, 0, 0, new long[0], new long[0], totalNanos);
+    }
+
+    /**
+     * Statistics of a Monte Carlo search.
+     * @param treeSize positions in the search trees, reported as nodes
+     */
+    static SearchStats monteCarlo(long playouts, int maxPly, long treeSize, long totalNanos){
+        return new SearchStats(0, maxPly, treeSize, playouts, 0, 0, 0, 0, new long[0], new long[0], totalNanos,
+                playouts);
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public int getMaxPly(){
+        return maxPly;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public long getLeafEvaluations(){
+        return leafEvaluations;
+    }
+
+    public long getCutoffs(){
+        return cutoffs;
+    }
+
+    /**
+     * Share of the beta cutoffs caused by the first move searched, a measure of how good
+     * the move ordering is.
+     */
+    public double getFirstMoveCutoffRate(){
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public long getTableProbes(){
+        return tableProbes;
+    }
+
+    public double getTableHitRate(){
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * Growth of the node count from one iteration to the next, the average number of
+     * moves searched per node.
+     */
+    public double getEffectiveBranchingFactor(){
+        if (depth == 0){
+            return 0;
+        }
+        if (depth == 1 || iterationNodes[depth - 2] == 0){
+            return Math.pow(iterationNodes[depth - 1], 1.0 / depth);
+        }
+        return (double) iterationNodes[depth - 1] / iterationNodes[depth - 2];
+    }
+
+    /**
+     * Nodes searched by the iteration of the given depth.
+     */
+    public long getIterationNodes(int depth){
+        return iterationNodes[depth - 1];
+    }
+
+    /**
+     * Time taken by the iteration of the given depth in milliseconds.
+     */
+    public double getIterationTimeMs(int depth){
+        return iterationNanos[depth - 1] / 1e6;
+    }
+
+    public long getPlayouts(){
+        return playouts;
+    }
+
+    public double getPlayoutsPerSecond(){
+        return totalNanos == 0 ? 0 : playouts * 1e9 / totalNanos;
+    }
+
+    /**
+     * Time taken by the whole move in milliseconds, including an unfinished iteration.
+     */
+    public double getTimeMs(){
+        return totalNanos / 1e6;
+    }
+
+    @Override
+    public String toString(){
+        if (playouts > 0){
+            return String.format(Locale.ROOT, "%d playouts (%.0f per second), %d positions in tree (max ply %d), %.1f ms",
+                    playouts, getPlayoutsPerSecond(), nodes, maxPly, getTimeMs());
+        }
+        StringBuilder iterations = new StringBuilder();
+        for (int d = 1; d <= depth; d++){
+            iterations.append(String.format(Locale.ROOT, " %d:%.1f", d, getIterationTimeMs(d)));
+        }
+        return String.format(Locale.ROOT, "depth %d (max ply %d), %d nodes, %d evaluations, %d cutoffs "
+                        + "(%.0f%% first move), table hits %.0f%%, branching factor %.2f, %.1f ms (ms per iteration%s)",
+                depth, maxPly, nodes, leafEvaluations, cutoffs, 100 * getFirstMoveCutoffRate(),
+                100 * getTableHitRate(), getEffectiveBranchingFactor(), getTimeMs(), iterations);
+    }
+}
@@ -0,0 +1,469 @@
+package main.game;
+
+/**
+ * Searches the positions below the root for an AI. Every worker thread uses its own
+ * searcher with its own board and move buffers; the transposition table, the endgame
+ * database, the stop flag and the node budget are shared through the AI.
+ */
+class Searcher {
+
+    // bound on all scores returned by the search
+    static final int INFINITY = SearchBoard.WIN_SCORE + 1;
+    // number of nodes between two checks of the budget
+    private static final int CHECK_INTERVAL = 1024;
+    // late move reductions (PVS only): quiet moves from this index on are searched one ply
+    // shallower at nodes with at least this depth, and again at full depth if they beat alpha
+    private static final int REDUCTION_MOVES = 3;
+    private static final int REDUCTION_DEPTH = 3;
+
+    private final AI ai;
+    // which player the search is with respect to
+    private final Player player;
+    private final TranspositionTable table;
+    // exact values of positions with few pieces, may be null
+    private final EndgameDatabase database;
+    // board the search walks up and down with make/unmake
+    private SearchBoard board;
+    // move list for every ply of the search, reused between searches
+    private final int[][] moveBuffers = new int[SearchBoard.MAX_PLY][MoveGenerator.MAX_MOVES];
+    // evaluation of the positions at the horizon
+    private final Heuristic heuristic;
+    // minimax or principal variation search
+    private final SearchAlgorithm algorithm;
+    // late move reductions in the principal variation search
+    private final boolean reductions;
+    // orders the moves of every node
+    private final MoveOrdering ordering = new MoveOrdering();
+    // nodes searched since the last budget check
+    private int nodes;
+    // statistics since the last report (see AI.addCounters)
+    private int cutoffs;
+    private int firstMoveCutoffs;
+    private long leafEvaluations;
+    private long tableProbes;
+    private long tableHits;
+    private int maxPly;
+
+    Searcher(AI ai, Player player, TranspositionTable table, EndgameDatabase database){
+        this.ai = ai;
+        this.player = player;
+        this.table = table;
+        this.database = database;
+        this.heuristic = ai.getHeuristic();
+        this.algorithm = ai.getAlgorithm();
+        this.reductions = ai.useReductions();
+    }
+
+    /**
+     * Sets the position the root moves are played from.
+     */
+    void setRoot(BoardState state){
+        board = new SearchBoard(state);
+        ordering.newSearch();
+    }
+
+    /**
+     * Scores a root move. Scores of at least alpha and below beta are exact, lower scores
+     * are upper bounds and higher scores lower bounds.
+     * @param move
+     * @param depth
+     * @param alpha best score found for another root move so far
+     * @param beta upper end of the root window
+     * @param first is this the first root move, searched with the full window by PVS?
+     * @return minimax score of the move
+     */
+    int searchRootMove(int move, int depth, int alpha, int beta, boolean first){
+        board.makeMove(move);
+        int score;
+        if (algorithm == SearchAlgorithm.ALPHA_BETA){
+            score = minimax(depth, alpha - 1, beta);
+        }
+        else if (first){
+            score = searchChild(depth, alpha - 1, beta, player);
+        }
+        else {
+            score = searchChild(depth, alpha - 1, alpha, player);
+            // probe failed high, the move is at least as good as the best so far
+            if (score >= alpha && !ai.isStopped()){
+                score = searchChild(depth, alpha - 1, beta, player);
+            }
+        }
+        board.unmakeMove();
+        ai.addNodes(nodes);
+        ai.addCounters(leafEvaluations, cutoffs, firstMoveCutoffs, tableProbes, tableHits, maxPly);
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        leafEvaluations = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        maxPly = 0;
+        return score;
+    }
+
+    /**
+     * Counts a node and checks the shared budget every CHECK_INTERVAL nodes.
+     */
+    private void countNode(){
+        if (++nodes == CHECK_INTERVAL){
+            ai.addNodes(nodes);
+            nodes = 0;
+        }
+    }
+
+    /**
+     * Implements the minimax algorithm with alpha-beta pruning on the search board.
+     * Children are visited by making and unmaking their move. Results are stored in the
+     * transposition table, which can cut off positions searched before.
+     * @param depth
+     * @param alpha
+     * @param beta
+     * @return
+     */
+    private int minimax(int depth, int alpha, int beta){
+        countNode();
+        if (ai.isStopped()){
+            return 0;
+        }
+        if (board.getPly() > maxPly){
+            maxPly = board.getPly();
+        }
+        if (board.isGameOver()){
+            return evaluate();
+        }
+        boolean maximizing = board.getTurn() == player;
+        // positions in the endgame database need no search, not even at the horizon
+        if (database != null){
+            int score = database.probe(board);
+            if (score != EndgameDatabase.UNKNOWN){
+                return maximizing ? score : -score;
+            }
+        }
+        if (depth == 0){
+            if (ai.useQuiescence()){
+                return quiesce(alpha, beta);
+            }
+            return evaluate();
+        }
+        // look up earlier result of this position
+        long entry = table.probe(board.getHash());
+        tableProbes++;
+        int hashMove = Move.NONE;
+        if (entry != 0){
+            tableHits++;
+            hashMove = TranspositionTable.move(entry);
+            int entryDepth = TranspositionTable.depth(entry);
+            // deeper results change scores, which a seeded search must not depend on
+            if (entryDepth == depth || (entryDepth > depth && !ai.isDeterministic())){
+                int score = fromTable(TranspositionTable.score(entry), maximizing);
+                int bound = toPlayerBound(TranspositionTable.bound(entry), maximizing);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+        int[] moves = moveBuffers[board.getPly()];
+        int count = board.generateMoves(moves);
+        // player without moves loses
+        if (count == 0){
+            int loss = -SearchBoard.WIN_SCORE + board.getPly();
+            return maximizing ? loss : -loss;
+        }
+        // search best move of earlier search first, then captures, promotions, killers and history
+        ordering.order(moves, count, hashMove, board.getPly(), board.getTurn());
+        int alphaOrig = alpha;
+        int betaOrig = beta;
+        int bestMove = Move.NONE;
+        int v;
+        // MAX player = player
+        if (maximizing){
+            // player tries to maximize this value
+            v = -INFINITY;
+            for (int i = 0; i < count; i++){
+                board.makeMove(moves[i]);
+                int score = minimax(depth-1, alpha, beta);
+                board.unmakeMove();
+                if (ai.isStopped()){
+                    return 0;
+                }
+                if (score > v){
+                    v = score;
+                    bestMove = moves[i];
+                }
+                alpha = Math.max(alpha, v);
+                // prune
+                if (alpha >= beta){
+                    recordCutoff(moves[i], i, depth);
+                    break;
+                }
+            }
+        }
+        // MIN player = opponent
+        else {
+            // opponent tries to minimize this value
+            v = INFINITY;
+            for (int i = 0; i < count; i++){
+                board.makeMove(moves[i]);
+                int score = minimax(depth-1, alpha, beta);
+                board.unmakeMove();
+                if (ai.isStopped()){
+                    return 0;
+                }
+                if (score < v){
+                    v = score;
+                    bestMove = moves[i];
+                }
+                beta = Math.min(beta, v);
+                // prune
+                if (alpha >= beta){
+                    recordCutoff(moves[i], i, depth);
+                    break;
+                }
+            }
+        }
+        int bound = TranspositionTable.EXACT;
+        if (v <= alphaOrig){
+            bound = TranspositionTable.UPPER;
+        }
+        else if (v >= betaOrig){
+            bound = TranspositionTable.LOWER;
+        }
+        table.store(board.getHash(), depth, toPlayerBound(bound, maximizing), toTable(v, maximizing), bestMove);
+        return v;
+    }
+
+    /**
+     * Searches the position after a move of the given player, returning the score from that
+     * player's view. The player moves again while doing a multi-jump.
+     */
+    private int searchChild(int depth, int alpha, int beta, Player mover){
+        if (board.getTurn() == mover){
+            return negamax(depth, alpha, beta);
+        }
+        return -negamax(depth, -beta, -alpha);
+    }
+
+    /**
+     * Principal variation search in negamax form: scores are from the view of the player
+     * to move. The first (best ordered) move is searched with the full window, the others
+     * with a null window only proving that they are not better, and searched again with
+     * the full window if the proof fails. Late quiet moves are also searched shallower
+     * first. Results are shared with minimax through the transposition table.
+     */
+    private int negamax(int depth, int alpha, int beta){
+        countNode();
+        if (ai.isStopped()){
+            return 0;
+        }
+        if (board.getPly() > maxPly){
+            maxPly = board.getPly();
+        }
+        boolean maximizing = board.getTurn() == player;
+        if (board.isGameOver()){
+            int score = evaluate();
+            return maximizing ? score : -score;
+        }
+        if (database != null){
+            int score = database.probe(board);
+            if (score != EndgameDatabase.UNKNOWN){
+                return score;
+            }
+        }
+        if (depth == 0){
+            if (ai.useQuiescence()){
+                return maximizing ? quiesce(alpha, beta) : -quiesce(-beta, -alpha);
+            }
+            int score = evaluate();
+            return maximizing ? score : -score;
+        }
+        long entry = table.probe(board.getHash());
+        tableProbes++;
+        int hashMove = Move.NONE;
+        if (entry != 0){
+            tableHits++;
+            hashMove = TranspositionTable.move(entry);
+            int entryDepth = TranspositionTable.depth(entry);
+            if (entryDepth == depth || (entryDepth > depth && !ai.isDeterministic())){
+                int score = fromTable(TranspositionTable.score(entry), true);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+        int[] moves = moveBuffers[board.getPly()];
+        int count = board.generateMoves(moves);
+        if (count == 0){
+            return -SearchBoard.WIN_SCORE + board.getPly();
+        }
+        ordering.order(moves, count, hashMove, board.getPly(), board.getTurn());
+        Player mover = board.getTurn();
+        int alphaOrig = alpha;
+        int v = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++){
+            int move = moves[i];
+            board.makeMove(move);
+            int score;
+            if (i == 0){
+                score = searchChild(depth - 1, alpha, beta, mover);
+            }
+            else {
+                int reduction = reductions && i >= REDUCTION_MOVES && depth >= REDUCTION_DEPTH
+                        && !Move.isCapture(move) && !Move.isPromotion(move) ? 1 : 0;
+                score = searchChild(depth - 1 - reduction, alpha, alpha + 1, mover);
+                if (score > alpha && reduction > 0){
+                    score = searchChild(depth - 1, alpha, alpha + 1, mover);
+                }
+                if (score > alpha && score < beta){
+                    score = searchChild(depth - 1, alpha, beta, mover);
+                }
+            }
+            board.unmakeMove();
+            if (ai.isStopped()){
+                return 0;
+            }
+            if (score > v){
+                v = score;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, v);
+            if (alpha >= beta){
+                recordCutoff(move, i, depth);
+                break;
+            }
+        }
+        int bound = TranspositionTable.EXACT;
+        if (v <= alphaOrig){
+            bound = TranspositionTable.UPPER;
+        }
+        else if (v >= beta){
+            bound = TranspositionTable.LOWER;
+        }
+        table.store(board.getHash(), depth, bound, toTable(v, true), bestMove);
+        return v;
+    }
+
+    /**
+     * Scores the position for the searching player with the AI's heuristic.
+     */
+    private int evaluate(){
+        leafEvaluations++;
+        if (heuristic == Heuristic.MATERIAL){
+            return board.computeHeuristic(player);
+        }
+        return board.evaluate(player);
+    }
+
+    /**
+     * Searches past the maximum depth while a jump is pending, so exchanges are played out
+     * before the position is evaluated. Jumps are forced, so a position with a jump is never
+     * evaluated as it stands. Results are not stored in the transposition table.
+     */
+    private int quiesce(int alpha, int beta){
+        if (!board.hasJump() || board.getPly() >= SearchBoard.MAX_PLY - 1){
+            return evaluate();
+        }
+        boolean maximizing = board.getTurn() == player;
+        int[] moves = moveBuffers[board.getPly()];
+        int count = board.generateMoves(moves);
+        int v = maximizing ? -INFINITY : INFINITY;
+        for (int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            int score = quiescenceNode(alpha, beta);
+            board.unmakeMove();
+            if (ai.isStopped()){
+                return 0;
+            }
+            if (maximizing){
+                v = Math.max(v, score);
+                alpha = Math.max(alpha, v);
+            }
+            else {
+                v = Math.min(v, score);
+                beta = Math.min(beta, v);
+            }
+            // prune
+            if (alpha >= beta){
+                cutoffs++;
+                if (i == 0){
+                    firstMoveCutoffs++;
+                }
+                break;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Visits a position below the maximum depth (see quiesce).
+     */
+    private int quiescenceNode(int alpha, int beta){
+        countNode();
+        if (ai.isStopped()){
+            return 0;
+        }
+        if (board.getPly() > maxPly){
+            maxPly = board.getPly();
+        }
+        if (board.isGameOver()){
+            return evaluate();
+        }
+        if (database != null){
+            int score = database.probe(board);
+            if (score != EndgameDatabase.UNKNOWN){
+                return board.getTurn() == player ? score : -score;
+            }
+        }
+        return quiesce(alpha, beta);
+    }
+
+    private void recordCutoff(int move, int index, int depth){
+        cutoffs++;
+        if (index == 0){
+            firstMoveCutoffs++;
+        }
+        ordering.cutoff(move, board.getPly(), depth, board.getTurn());
+    }
+
+    /**
+     * Converts a score of the AI's player to the table's side-to-move view, with win scores
+     * made relative to the current ply.
+     */
+    private int toTable(int score, boolean maximizing){
+        if (score > SearchBoard.WIN_SCORE - SearchBoard.MAX_PLY){
+            score += board.getPly();
+        }
+        else if (score < -SearchBoard.WIN_SCORE + SearchBoard.MAX_PLY){
+            score -= board.getPly();
+        }
+        return maximizing ? score : -score;
+    }
+
+    /**
+     * Inverse of toTable.
+     */
+    private int fromTable(int score, boolean maximizing){
+        if (score > SearchBoard.WIN_SCORE - SearchBoard.MAX_PLY){
+            score -= board.getPly();
+        }
+        else if (score < -SearchBoard.WIN_SCORE + SearchBoard.MAX_PLY){
+            score += board.getPly();
+        }
+        return maximizing ? score : -score;
+    }
+
+    /**
+     * Lower and upper bounds swap when switching between the AI's and the opponent's view.
+     */
+    private static int toPlayerBound(int bound, boolean maximizing){
+        if (maximizing || bound == TranspositionTable.EXACT){
+            return bound;
+        }
+        return bound == TranspositionTable.LOWER ? TranspositionTable.UPPER : TranspositionTable.LOWER;
+    }
+}
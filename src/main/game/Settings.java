@@ -1,7 +1,17 @@
 package main.game;
 
+/**
+ * Settings of the program as a whole; the settings of a search engine are per engine,
+ * see SearchConfig and SearchLimits.
+ */
 public class Settings {
     public static Player FIRSTMOVE = Player.HUMAN;
-    public static int AI_DEPTH = 7;
-    public static final int UNDO_MEMORY = 40;
+    // endgame database file used by default if it exists (see main.tools.BuildEndgameDatabase)
+    public static String ENDGAME_DB = "endgame.db";
+    // opening book file used by default if it exists (see main.tools.BuildOpeningBook)
+    public static String OPENING_BOOK = "book.bin";
+    // does the AI search ahead during the human's turn?
+    public static boolean PONDER = true;
+    // most replies of the human pondered after an AI move, the likeliest first
+    public static int PONDER_REPLIES = 3;
 }
\ No newline at end of file
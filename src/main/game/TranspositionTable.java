@@ -0,0 +1,115 @@
+package main.game;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table remembering the result of searched positions.
+ * Every entry is two longs: a packed data word holding best move, score, depth, bound
+ * type and the age of the search that stored it, and the Zobrist key XOR-ed with that
+ * data word. Threads share the table without locking: an entry torn by two concurrent
+ * writes no longer matches its key and is treated as a miss.
+ */
+public class TranspositionTable {
+
+    // bound types, stored from the point of view of the player to move
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    // layout of the data word
+    private static final int MOVE_BITS = 18;
+    private static final int SCORE_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = SCORE_SHIFT + 16;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 8;
+    private static final int AGE_SHIFT = BOUND_SHIFT + 2;
+    private static final int AGE_MASK = 0x3F;
+
+    // bytes per entry (key + data)
+    private static final int ENTRY_SIZE = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    // age of the current search, entries of older searches are replaced first
+    private int age;
+
+    /**
+     * @param sizeMb table size in megabytes, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int sizeMb){
+        long entries = Math.max(1, (long) sizeMb * 1024 * 1024 / ENTRY_SIZE);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Marks the start of a new search.
+     */
+    public void newSearch(){
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public void clear(){
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Looks up a position.
+     * @return packed entry, or 0 if the position is not stored
+     */
+    public long probe(long key){
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key){
+            return entry;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result. An existing entry is kept only if it belongs to another
+     * position, comes from the current search and was searched deeper.
+     */
+    public void store(long key, int depth, int bound, int score, int move){
+        int index = (int) key & mask;
+        long old = data[index];
+        boolean samePosition = (keys[index] ^ old) == key;
+        if (old != 0 && !samePosition && age(old) == age && depth(old) > depth){
+            return;
+        }
+        // keep the old best move if this search did not find one
+        if (move == Move.NONE && samePosition){
+            move = move(old);
+        }
+        long entry = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) age << AGE_SHIFT);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    public static int move(long entry){
+        return (int) (entry & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long entry){
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long entry){
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long entry){
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int age(long entry){
+        return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+    }
+}
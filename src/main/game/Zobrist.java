@@ -0,0 +1,88 @@
+package main.game;
+
+import java.util.Random;
+
+/**
+ * Zobrist keys for hashing board positions. A position's hash is the XOR of one key per
+ * piece and square, plus keys for the player to move and the square of a multi-jump in
+ * progress, so moves can update it incrementally.
+ */
+public final class Zobrist {
+
+    // fixed seed so hashes are the same in every run (opening book files depend on it)
+    private static final long SEED = 0x5DEECE66DL;
+
+    // keys per piece type (see pieceIndex) and square
+    private static final long[][] PIECES = new long[4][Bitboard.SQUARES];
+    // key for the human player to move
+    private static final long HUMAN_TO_MOVE;
+    // keys for the square of a piece in the middle of a multi-jump
+    private static final long[] JUMP_SQUARE = new long[Bitboard.SQUARES];
+
+    static {
+        Random rand = new Random(SEED);
+        for (long[] keys : PIECES){
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++){
+                keys[sq] = rand.nextLong();
+            }
+        }
+        HUMAN_TO_MOVE = rand.nextLong();
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++){
+            JUMP_SQUARE[sq] = rand.nextLong();
+        }
+    }
+
+    private Zobrist(){}
+
+    /**
+     * Computes the hash of a position from scratch.
+     */
+    static long hash(int aiPieces, int humanPieces, int kings, Player turn, int jumpSquare){
+        long hash = turnKey(turn, jumpSquare);
+        hash ^= piecesKey(aiPieces & ~kings, PIECES[pieceIndex(Player.AI, false)]);
+        hash ^= piecesKey(aiPieces & kings, PIECES[pieceIndex(Player.AI, true)]);
+        hash ^= piecesKey(humanPieces & ~kings, PIECES[pieceIndex(Player.HUMAN, false)]);
+        hash ^= piecesKey(humanPieces & kings, PIECES[pieceIndex(Player.HUMAN, true)]);
+        return hash;
+    }
+
+    /**
+     * Hash difference caused by the piece movement and capture of a move.
+     * @param player player making the move
+     * @param king is the moving piece a king (before the move)
+     */
+    static long moveKey(int move, Player player, boolean king){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long key = PIECES[pieceIndex(player, king)][from]
+                ^ PIECES[pieceIndex(player, king || Move.isPromotion(move))][to];
+        if (Move.isCapture(move)){
+            key ^= PIECES[pieceIndex(player.getOpposite(), Move.capturesKing(move))][Move.captured(move)];
+        }
+        return key;
+    }
+
+    /**
+     * Hash part for the player to move and the multi-jump square (-1 if none).
+     */
+    static long turnKey(Player turn, int jumpSquare){
+        long key = turn == Player.HUMAN ? HUMAN_TO_MOVE : 0;
+        if (jumpSquare >= 0){
+            key ^= JUMP_SQUARE[jumpSquare];
+        }
+        return key;
+    }
+
+    private static long piecesKey(int pieces, long[] keys){
+        long key = 0;
+        while (pieces != 0){
+            key ^= keys[Integer.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+        }
+        return key;
+    }
+
+    private static int pieceIndex(Player player, boolean king){
+        return player.ordinal() * 2 + (king ? 1 : 0);
+    }
+}
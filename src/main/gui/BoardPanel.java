@@ -0,0 +1,120 @@
+package main.gui;
+
+import main.game.Bitboard;
+import main.game.BoardState;
+import main.game.Piece;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * Checkerboard drawn as a single component: squares, pieces, highlighted pieces and the
+ * targets of the selected piece's moves. Updates repaint only the squares that changed.
+ */
+public class BoardPanel extends JComponent {
+
+    public interface Listener {
+
+        /**
+         * Called on the event dispatch thread when a square is clicked.
+         */
+        void onSquareClick(int row, int col);
+    }
+
+    private static final int SIDE = BoardState.SIDE_LENGTH;
+
+    // what is drawn, per square
+    private final Piece[][] pieces = new Piece[SIDE][SIDE];
+    private final boolean[][] highlighted = new boolean[SIDE][SIDE];
+    private final boolean[][] targets = new boolean[SIDE][SIDE];
+
+    private final ImageAtlas atlas;
+
+    public BoardPanel(ImageAtlas atlas, final Listener listener){
+        this.atlas = atlas;
+        setPreferredSize(new Dimension(SIDE * Settings.squareSize, SIDE * Settings.squareSize));
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int row = e.getY() / Settings.squareSize;
+                int col = e.getX() / Settings.squareSize;
+                if (row < SIDE && col < SIDE){
+                    listener.onSquareClick(row, col);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows a board state, repainting the squares that changed.
+     * @param highlightedSquares squares (see Bitboard) to highlight, one bit per square
+     * @param targetSquares squares to mark as move targets, one bit per square
+     */
+    public void update(BoardState state, int highlightedSquares, int targetSquares){
+        for (int i = 0; i < SIDE; i++){
+            for (int j = 0; j < SIDE; j++){
+                if (!Bitboard.isDark(i, j)){
+                    continue;
+                }
+                int bit = 1 << Bitboard.square(i, j);
+                // pieces are shared instances, so an unchanged square holds the same piece
+                Piece piece = state.getPiece(i, j);
+                boolean highlight = (highlightedSquares & bit) != 0;
+                boolean target = (targetSquares & bit) != 0;
+                if (piece != pieces[i][j] || highlight != highlighted[i][j] || target != targets[i][j]){
+                    pieces[i][j] = piece;
+                    highlighted[i][j] = highlight;
+                    targets[i][j] = target;
+                    repaint(j * Settings.squareSize, i * Settings.squareSize, Settings.squareSize, Settings.squareSize);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g){
+        int size = Settings.squareSize;
+        // only the squares in the dirty region
+        Rectangle clip = g.getClipBounds();
+        if (clip == null){
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(0, clip.y / size);
+        int lastRow = Math.min(SIDE - 1, (clip.y + clip.height - 1) / size);
+        int firstCol = Math.max(0, clip.x / size);
+        int lastCol = Math.min(SIDE - 1, (clip.x + clip.width - 1) / size);
+        for (int i = firstRow; i <= lastRow; i++){
+            for (int j = firstCol; j <= lastCol; j++){
+                paintSquare(g, i, j, j * size, i * size, size);
+            }
+        }
+    }
+
+    private void paintSquare(Graphics g, int row, int col, int x, int y, int size){
+        if (highlighted[row][col]){
+            g.setColor(Color.GRAY);
+        }
+        else if ((row + col) % 2 == 0){
+            g.setColor(Color.WHITE);
+        }
+        else {
+            g.setColor(Color.BLACK);
+        }
+        g.fillRect(x, y, size, size);
+        Piece piece = pieces[row][col];
+        if (piece != null){
+            drawCentered(g, atlas.getPiece(Settings.getpColor(piece.getPlayer()), piece.isKing()), x, y, size);
+        }
+        if (targets[row][col]){
+            drawCentered(g, atlas.getTarget(), x, y, size);
+        }
+    }
+
+    private static void drawCentered(Graphics g, BufferedImage image, int x, int y, int size){
+        g.drawImage(image, x + (size - image.getWidth()) / 2, y + (size - image.getHeight()) / 2, null);
+    }
+}
@@ -1,49 +1,94 @@
 package main.gui;
 
 import main.game.*;
-import main.game.Settings;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import javax.imageio.ImageIO;
 import javax.swing.*;
 
 public class GUI extends JFrame{
 
     private Game game;
-    private ArrayList<BoardState> possibleMoves;
-    private SquarePanel[][] squares;
-    private JPanel checkerboardPanel;
+    // moves of the selected piece (see Move) and their number
+    private int[] possibleMoves = new int[Move.MAX_MOVES];
+    private int possibleMoveCount;
+    private BoardPanel boardPanel;
     private JPanel contentPane;
     private JTextArea textBox;
-    private List<ArrayList<Integer>> helpMoves;
+    // squares (see Bitboard) of the pieces highlighted by "Show movable pieces"
+    private int helpSquares;
     private HashMap<Integer, Integer> difficultyMapping;
+    private HashMap<Integer, Integer> timeBudgetMapping;
+    private HashMap<Integer, Integer> playoutMapping;
+    // engine chosen for the game, and the limits of its searches set by the difficulty
+    private SearchConfig searchConfig;
+    private SearchLimits searchLimits;
+    // runs AI searches off the event dispatch thread
+    private Engine engine;
+    // start time of the running AI search
+    private long aiSearchStart;
+    // sprites of the board, read once at startup
+    private final ImageAtlas atlas;
 
     public static void startGame(){
         GUI gui = new GUI();
     }
     private GUI(){
+        atlas = new ImageAtlas();
         difficultyMapping = new HashMap<>();
         difficultyMapping.put(1,1);
         difficultyMapping.put(2, 5);
         difficultyMapping.put(3, 8);
-        difficultyMapping.put(4, 12);
+        difficultyMapping.put(4, 40);
+        // time budget per AI move in ms, the search stops at whichever limit comes first
+        timeBudgetMapping = new HashMap<>();
+        timeBudgetMapping.put(1, 250);
+        timeBudgetMapping.put(2, 500);
+        timeBudgetMapping.put(3, 1000);
+        timeBudgetMapping.put(4, 3000);
+        // playouts per AI move with the Monte Carlo engine, 0 to use the whole time budget
+        playoutMapping = new HashMap<>();
+        playoutMapping.put(1, 200);
+        playoutMapping.put(2, 2000);
+        playoutMapping.put(3, 20000);
+        playoutMapping.put(4, 0);
+        engine = new Engine(new Engine.Listener() {
+            @Override
+            public void onProgress(final int depth, final long nodes, final int bestMove) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateText("AI thinking... depth " + depth + ", " + nodes + " positions, best move "
+                                + Move.toString(bestMove));
+                    }
+                });
+            }
+
+            @Override
+            public void onMove(final BoardState state, final BoardState newState, final SearchStats stats) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        onAiMoveFound(state, newState, stats);
+                    }
+                });
+            }
+        });
         start();
     }
 
     private void start(){
         settingsPopup();
-        game = new Game();
-        possibleMoves = new ArrayList<>();
+        if (game != null){
+            engine.close(game);
+        }
+        game = new Game(BoardState.InitialState(), searchConfig.createEngine(Player.AI), searchLimits);
+        possibleMoveCount = 0;
+        helpSquares = 0;
         setup();
     }
 
@@ -65,27 +110,39 @@ public class GUI extends JFrame{
         difficultyButtonGroup.add(d3);
         difficultyButtonGroup.add(d4);
         d1.setSelected(true);
+        JLabel text2 = new JLabel("Set Engine", 10);
+        //engine radio buttons
+        JRadioButton e1 = new JRadioButton("Minimax");
+        JRadioButton e2 = new JRadioButton("Monte Carlo");
+        ButtonGroup engineButtonGroup = new ButtonGroup();
+        engineButtonGroup.add(e1);
+        engineButtonGroup.add(e2);
+        e1.setSelected(true);
         // add components to panel
         panel.add(text1);
         panel.add(d1);
         panel.add(d2);
         panel.add(d3);
         panel.add(d4);
+        panel.add(text2);
+        panel.add(e1);
+        panel.add(e2);
         // pop up
         int result = JOptionPane.showConfirmDialog(null, panel, "Game settings",
                      JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
         // process results
         if(result == JOptionPane.OK_OPTION){
             if(d1.isSelected()){
-                Settings.AI_DEPTH =  difficultyMapping.get(1);
+                setDifficulty(1);
             } else if (d2.isSelected()) {
-                Settings.AI_DEPTH =  difficultyMapping.get(2);
+                setDifficulty(2);
             } else if(d3.isSelected()){
-                Settings.AI_DEPTH =  difficultyMapping.get(3);
+                setDifficulty(3);
             } else {
-                Settings.AI_DEPTH =  difficultyMapping.get(4);
+                setDifficulty(4);
             }
-            System.out.println("AI depth = " + Settings.AI_DEPTH);
+            searchConfig = new SearchConfig().setAlgorithm(e2.isSelected() ? SearchAlgorithm.MCTS : SearchAlgorithm.PVS);
+            System.out.println("AI " + searchConfig.getAlgorithm() + ", " + searchLimits);
         }
         else {
             this.dispose();
@@ -93,6 +150,10 @@ public class GUI extends JFrame{
         }
     }
 
+    private void setDifficulty(int difficulty){
+        searchLimits = new SearchLimits(difficultyMapping.get(difficulty), timeBudgetMapping.get(difficulty), 0,
+                playoutMapping.get(difficulty));
+    }
 
     /**
      * Sets up initial GUI configuration.
@@ -100,18 +161,19 @@ public class GUI extends JFrame{
     public void setup()
     {
         this.setTitle("Checkers");
-        try {
-            this.setIconImage(ImageIO.read(new File("images/icon.png")));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        this.setIconImage(atlas.getIcon());
         setupMenuBar();
         contentPane = new JPanel();
-        checkerboardPanel = new JPanel(new GridBagLayout());
+        boardPanel = new BoardPanel(atlas, new BoardPanel.Listener() {
+            @Override
+            public void onSquareClick(int row, int col) {
+                GUI.this.onSquareClick(row, col);
+            }
+        });
         JPanel textPanel = new JPanel();
         contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.PAGE_AXIS));
         this.setContentPane(contentPane);
-        contentPane.add(checkerboardPanel);
+        contentPane.add(boardPanel);
         contentPane.add(textPanel);
         textBox = new JTextArea();
         textBox.setEditable(false);
@@ -131,84 +193,31 @@ public class GUI extends JFrame{
     }
 
     /**
-     * Updates the checkerboard GUI based on the game state.
+     * Short description of the search that found the AI's last move, "" if there was none
+     * (e.g. a book move).
      */
-    private void updateCheckerBoard(){
-        checkerboardPanel.removeAll();
-        addPieces();
-        addSquares();
-        addHelpButtons();
-        checkerboardPanel.setVisible(true);
-        checkerboardPanel.repaint();
-        this.pack();
-        this.setVisible(true);
-    }
-
-    private void addSquares(){
-        squares = new SquarePanel[game.getState().SIDE_LENGTH][game.getState().SIDE_LENGTH];
-        GridBagConstraints c = new GridBagConstraints();
-        for (int i = 0; i < game.getState().SIDE_LENGTH; i++){
-            for (int j = 0; j < game.getState().SIDE_LENGTH; j++) {
-                c.gridx = j;
-                c.gridy = i;
-                squares[i][j] = new SquarePanel(c.gridx, c.gridy);
-                if (helpMoves != null){
-                    ArrayList<Integer> check = new ArrayList<Integer>();
-                    check.add(i);
-                    check.add(j);
-                    if (helpMoves.contains(check)){
-                        squares[i][j].setHighlighted();
-                    }
-                }
-                checkerboardPanel.add(squares[i][j], c);
-            }
+    private static String searchSummary(SearchStats stats){
+        if (stats == null || (stats.getNodes() == 0 && stats.getPlayouts() == 0)){
+            return "";
         }
-    }
-
-
-    /**
-     * Add checker pieces to the GUI corresponding to the game state
-     */
-    private void addPieces(){
-        GridBagConstraints c = new GridBagConstraints();
-        for (int i = 0; i < game.getState().SIDE_LENGTH; i++){
-            for (int j =0; j< game.getState().SIDE_LENGTH;j++){
-                c.gridx = j;
-                c.gridy = i;
-                if(game.getState().getPiece(i,j) != null){
-                    Piece piece = game.getState().getPiece(i,j);
-                    CheckerButton button = new CheckerButton(j,i, piece, this);
-                    button.addActionListener(new ActionListener() {
-                        @Override
-                        public void actionPerformed(ActionEvent actionEvent) {
-                            onPieceClick(actionEvent);
-                        }
-                    });
-                    checkerboardPanel.add(button, c);
-                }
-            }
+        if (stats.getPlayouts() > 0){
+            return String.format(Locale.ROOT, "AI played %d games in %.0f ms", stats.getPlayouts(), stats.getTimeMs());
         }
+        return String.format(Locale.ROOT, "AI searched depth %d, %d positions in %.0f ms", stats.getDepth(),
+                stats.getNodes(), stats.getTimeMs());
     }
 
     /**
-     * Add "help buttons" showing possible moves for the player
+     * Updates the checkerboard GUI based on the game state.
      */
-    private void addHelpButtons(){
-        for (BoardState state : possibleMoves){
-            int newPosX = state.getToPosX();
-            int newPosY = state.getToPosY();
-            HelpButton button = new HelpButton(state);
-            button.addActionListener(new ActionListener() {
-                @Override
-                public void actionPerformed(ActionEvent actionEvent) {
-                    onHelpButtonClick(actionEvent);
-                }
-            });
-            squares[newPosY][newPosX].add(button);
+    private void updateCheckerBoard(){
+        int targets = 0;
+        for (int i = 0; i < possibleMoveCount; i++){
+            targets |= 1 << Move.to(possibleMoves[i]);
         }
+        boardPanel.update(game.getState(), helpSquares, targets);
     }
 
-
     /**
      * Sets up the menu bar component.
      */
@@ -231,6 +240,7 @@ public class GUI extends JFrame{
         JMenuItem quitItem = new JMenuItem("Quit");
         JMenu editMenu = new JMenu("History");
         JMenuItem undoItem = new JMenuItem("Undo");
+        JMenuItem redoItem = new JMenuItem("Redo");
         JMenu helpMenu = new JMenu("Help");
         JMenuItem rulesItem = new JMenuItem("Game Rules");
         JMenuItem helpItemMovables = new JMenuItem("Show movable pieces");
@@ -260,6 +270,12 @@ public class GUI extends JFrame{
                 onUndoClick();
             }
         });
+        redoItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                onRedoClick();
+            }
+        });
         helpItemMovables.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent actionEvent) {
@@ -271,6 +287,7 @@ public class GUI extends JFrame{
         fileMenu.add(restartItem);
         fileMenu.add(quitItem);
         editMenu.add(undoItem);
+        editMenu.add(redoItem);
         helpMenu.add(helpItemMovables);
         helpMenu.add(rulesItem);
         menuBar.add(fileMenu);
@@ -283,31 +300,41 @@ public class GUI extends JFrame{
     /*********************** ON CLICK METHODS **********************/
 
     private void onHelpMovablesClick(){
-        helpMoves = new ArrayList<ArrayList<Integer>>();
-        ArrayList<Integer> temp;
-        for(BoardState obj : game.getState().getSuccessors()){
-            temp = new ArrayList<>();
-            temp.add(obj.getFromPosY());
-            temp.add(obj.getFromPosX());
-            helpMoves.add(temp);
-        }
+        helpSquares = game.getMovablePieces();
         updateCheckerBoard();
     }
 
+    /**
+     * Occurs when user clicks on a square of the board: moves the selected piece there if
+     * it is one of its targets, otherwise selects the human's piece on it.
+     */
+    private void onSquareClick(int row, int col){
+        if (!Bitboard.isDark(row, col)){
+            return;
+        }
+        int square = Bitboard.square(row, col);
+        for (int i = 0; i < possibleMoveCount; i++){
+            if (Move.to(possibleMoves[i]) == square){
+                onTargetClick(possibleMoves[i]);
+                return;
+            }
+        }
+        Piece piece = game.getState().getPiece(row, col);
+        if (piece != null){
+            onPieceClick(row, col, piece);
+        }
+    }
+
     /**
      * Occurs when user clicks on checker piece
-     * @param actionEvent
      */
-    private void onPieceClick(ActionEvent actionEvent){
+    private void onPieceClick(int posY, int posX, Piece piece){
         try {
             if (game.getTurn() == Player.HUMAN) {
-                CheckerButton button = (CheckerButton) actionEvent.getSource();
-                int posX = button.getPositionX();
-                int posY = button.getPositionY();
-                if (button.getPiece().getPlayer() == Player.HUMAN) {
-                    possibleMoves = game.getValidMoves(posX, posY);
+                if (piece.getPlayer() == Player.HUMAN) {
+                    possibleMoveCount = game.getValidMoves(posX, posY, possibleMoves);
                     updateCheckerBoard();
-                    if (possibleMoves.size() == 0) {
+                    if (possibleMoveCount == 0) {
                         MoveFeedback feedback = game.moveFeedbackClick();
                         updateText(feedback.toString());
                         if (feedback == MoveFeedback.FORCED_JUMP) {
@@ -327,24 +354,19 @@ public class GUI extends JFrame{
 
     /**
      * Occurs when user clicks to move checker piece to new (help) location.
-     * @param actionEvent
      */
-    private void onHelpButtonClick(ActionEvent actionEvent){
+    private void onTargetClick(int move){
         if (!game.isGameOver() && game.getTurn() == Player.HUMAN){
-            helpMoves = null;
-            HelpButton button = (HelpButton) actionEvent.getSource();
-            game.playerMove(button.getBoardstate());
-            possibleMoves = new ArrayList<>();
+            helpSquares = 0;
+            game.playerMove(move);
+            possibleMoveCount = 0;
             updateCheckerBoard();
-            SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    aiMove();
-                    if (game.isGameOver()){
-                        gameOver();
-                    }
-                }
-            });
+            if (game.isGameOver()){
+                gameOver();
+            }
+            else {
+                requestAiMove();
+            }
         }
     }
 
@@ -355,37 +377,55 @@ public class GUI extends JFrame{
                 JOptionPane.INFORMATION_MESSAGE );
     }
 
-    private void aiMove(){
-        // perform AI move
-        long startTime = System.nanoTime();
-        game.aiMove();
+    /**
+     * Asks the engine thread for the AI's move if it is the AI's turn.
+     */
+    private void requestAiMove(){
+        if (!game.isGameOver() && game.getTurn() == Player.AI){
+            aiSearchStart = System.nanoTime();
+            engine.requestMove(game, game.getState());
+        }
+    }
+
+    /**
+     * Occurs when the engine found the AI's move; shows it after the minimum pause.
+     */
+    private void onAiMoveFound(final BoardState state, final BoardState newState, final SearchStats stats){
+        // game was undone or restarted meanwhile
+        if (game.getState() != state){
+            return;
+        }
         // compute time taken
-        long aiMoveDurationInMs = (System.nanoTime() - startTime)/1000000;
+        long aiMoveDurationInMs = (System.nanoTime() - aiSearchStart)/1000000;
         // compute necessary delay time (not less than zero)
         long delayInMs = Math.max(0, main.gui.Settings.AiMinPauseDurationInMs - aiMoveDurationInMs);
         // schedule delayed update
-        ScheduledExecutorService exec = Executors.newScheduledThreadPool(1);
-        exec.schedule(new Runnable(){
+        javax.swing.Timer timer = new javax.swing.Timer((int) delayInMs, new ActionListener() {
             @Override
-            public void run(){
-                invokeAiUpdate();
+            public void actionPerformed(ActionEvent actionEvent) {
+                invokeAiUpdate(state, newState, stats);
             }
-        }, delayInMs, TimeUnit.MILLISECONDS);
+        });
+        timer.setRepeats(false);
+        timer.start();
     }
 
     /**
      * Update checkerboard and trigger new AI move if necessary
      */
-    private void invokeAiUpdate(){
-        SwingUtilities.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                updateCheckerBoard();
-                if (!game.isGameOver() && game.getTurn() == Player.AI){
-                    aiMove();
-                }
-            }
-        });
+    private void invokeAiUpdate(BoardState state, BoardState newState, SearchStats stats){
+        if (game.getState() != state){
+            return;
+        }
+        game.aiMove(newState);
+        updateText(searchSummary(stats));
+        updateCheckerBoard();
+        if (game.isGameOver()){
+            gameOver();
+        }
+        else {
+            requestAiMove();
+        }
     }
 
     /**
@@ -403,6 +443,7 @@ public class GUI extends JFrame{
                 options,
                 options[1]);
         if (res == 0){
+            engine.cancel();
             start();
         }
     }
@@ -422,6 +463,7 @@ public class GUI extends JFrame{
                 options,
                 options[1]);
         if (n == 0){
+            engine.shutdown();
             // close logging file
             this.dispose();
             System.exit(0);
@@ -443,7 +485,27 @@ public class GUI extends JFrame{
      * Undo the last move
      */
     private void onUndoClick(){
+        engine.cancel();
         game.undo();
+        possibleMoveCount = 0;
+        helpSquares = 0;
+        updateCheckerBoard();
+    }
+
+    /**
+     * Redo the moves undone last
+     */
+    private void onRedoClick(){
+        engine.cancel();
+        game.redo();
+        possibleMoveCount = 0;
+        helpSquares = 0;
         updateCheckerBoard();
+        if (game.isGameOver()){
+            gameOver();
+        }
+        else {
+            requestAiMove();
+        }
     }
 }
@@ -0,0 +1,123 @@
+package main.gui;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Piece, king and move target sprites, read once at startup and scaled to the square size
+ * in the display's image format, so drawing them is a plain copy. The sprites are scaled
+ * again only when Settings.squareSize changes.
+ */
+public class ImageAtlas {
+
+    // size of the sprites relative to the square size; the target is drawn like a piece,
+    // so it stays inside its square and repainting the square clears it
+    private static final int PIECE_NUMERATOR = 5;
+    private static final int PIECE_DENOMINATOR = 6;
+
+    // sprites as read, by color and kind (man, king), and the move target
+    private final BufferedImage[][] pieces = new BufferedImage[2][2];
+    private final BufferedImage target;
+    private final BufferedImage icon;
+
+    // sprites scaled to scaledSize
+    private final BufferedImage[][] scaledPieces = new BufferedImage[2][2];
+    private BufferedImage scaledTarget;
+    private int scaledSize;
+
+    /**
+     * Reads all sprites.
+     * @throws IllegalStateException if a sprite is missing or unreadable
+     */
+    public ImageAtlas(){
+        pieces[pColor.BLACK.ordinal()][0] = read("images/blackchecker.png");
+        pieces[pColor.BLACK.ordinal()][1] = read("images/blackking.png");
+        pieces[pColor.WHITE.ordinal()][0] = read("images/whitechecker.png");
+        pieces[pColor.WHITE.ordinal()][1] = read("images/whiteking.png");
+        target = read("images/dottedcircle.png");
+        icon = read("images/icon.png");
+    }
+
+    /**
+     * Gets the sprite of a piece, scaled to the current square size.
+     */
+    public BufferedImage getPiece(pColor color, boolean king){
+        rescale();
+        return scaledPieces[color.ordinal()][king ? 1 : 0];
+    }
+
+    /**
+     * Gets the sprite marking a move target, scaled to the current square size.
+     */
+    public BufferedImage getTarget(){
+        rescale();
+        return scaledTarget;
+    }
+
+    /**
+     * Gets the window icon.
+     */
+    public BufferedImage getIcon(){
+        return icon;
+    }
+
+    private void rescale(){
+        int size = Settings.squareSize;
+        if (size == scaledSize){
+            return;
+        }
+        int pieceSize = PIECE_NUMERATOR * size / PIECE_DENOMINATOR;
+        for (int color = 0; color < 2; color++){
+            for (int kind = 0; kind < 2; kind++){
+                scaledPieces[color][kind] = scale(pieces[color][kind], pieceSize, pieceSize);
+            }
+        }
+        scaledTarget = scale(target, pieceSize, pieceSize);
+        scaledSize = size;
+    }
+
+    private static BufferedImage read(String path){
+        try {
+            BufferedImage image = ImageIO.read(new File(path));
+            if (image == null){
+                throw new IllegalStateException("Unsupported image format: " + path);
+            }
+            return image;
+        }
+        catch (IOException e){
+            throw new IllegalStateException("Cannot read image " + path, e);
+        }
+    }
+
+    /**
+     * Scales an image down by halving it until close to the wanted size, which keeps
+     * bilinear scaling smooth, then copies it into a display compatible image.
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height){
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height){
+            current = draw(current, createImage(current.getWidth() / 2, current.getHeight() / 2));
+        }
+        return draw(current, createImage(width, height));
+    }
+
+    private static BufferedImage draw(BufferedImage source, BufferedImage destination){
+        Graphics2D g = destination.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, destination.getWidth(), destination.getHeight(), null);
+        g.dispose();
+        return destination;
+    }
+
+    private static BufferedImage createImage(int width, int height){
+        if (GraphicsEnvironment.isHeadless()){
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
@@ -7,10 +7,6 @@ public final class Settings{
     public static pColor AIpColor = pColor.BLACK;
     public static int AiMinPauseDurationInMs = 800;
     public static int squareSize = 80;
-    public static int checkerWidth = 5*squareSize/6;
-    public static int checkerHeight = 5*squareSize/6;
-    public static int HelpButtonWidth = 30*squareSize/29;
-    public static int HelpButtonHeight = 5*squareSize/6;
 
     private Settings(){}
     /**
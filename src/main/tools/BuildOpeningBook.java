@@ -0,0 +1,41 @@
+package main.tools;
+
+import main.game.BoardState;
+import main.game.OpeningBookBuilder;
+import main.game.Player;
+import main.game.Settings;
+
+import java.io.IOException;
+
+/**
+ * Builds the opening book the AI plays from, for games started by either player.
+ *
+ * Usage: java -cp target/classes main.tools.BuildOpeningBook [plies] [depth] [file]
+ *   plies    number of moves from the initial position the book covers, 6 by default
+ *   depth    search depth choosing the AI's moves, 14 by default
+ *   file     output file, Settings.OPENING_BOOK by default
+ */
+public class BuildOpeningBook {
+
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        String path = args.length > 2 ? args[2] : Settings.OPENING_BOOK;
+        long start = System.currentTimeMillis();
+        OpeningBookBuilder builder = new OpeningBookBuilder(depth);
+        Player firstMove = Settings.FIRSTMOVE;
+        try {
+            for (Player player : Player.values()){
+                Settings.FIRSTMOVE = player;
+                builder.build(BoardState.InitialState(), plies);
+            }
+        }
+        finally {
+            Settings.FIRSTMOVE = firstMove;
+            builder.close();
+        }
+        builder.write(path);
+        System.out.println("Wrote " + builder.size() + " positions to " + path + " in "
+                + (System.currentTimeMillis() - start) / 1000 + " s");
+    }
+}
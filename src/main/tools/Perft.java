@@ -0,0 +1,180 @@
+package main.tools;
+
+import main.game.BoardState;
+import main.game.Move;
+import main.game.Player;
+import main.game.SearchBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the positions reachable in a number of moves (perft), to validate the move
+ * generator and measure its speed. A multi-jump counts as a single move.
+ *
+ * Usage: java -cp target/classes main.tools.Perft [options] depth
+ *   -fen FEN      start from a position in PDN FEN notation instead of the initial one
+ *   -divide       print the count below every root move at the final depth
+ *   -threads N    split the root moves across N threads
+ *   -check        compare with BoardState.getSuccessors() and the published counts,
+ *                 exits with status 1 on a mismatch
+ */
+public class Perft {
+
+    // published perft counts of the initial position, indexed by depth
+    static final long[] INITIAL_COUNTS = {1, 7, 49, 302, 1469, 7361, 36768, 179740, 845931,
+            3963680, 18391564, 85242128, 388623673, 1766623630, 7978439499L};
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        String fen = null;
+        boolean divide = false;
+        boolean check = false;
+        int threads = 1;
+        int depth = -1;
+        for (int i = 0; i < args.length; i++){
+            switch (args[i]){
+                case "-fen":
+                    fen = args[++i];
+                    break;
+                case "-divide":
+                    divide = true;
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-check":
+                    check = true;
+                    break;
+                default:
+                    depth = Integer.parseInt(args[i]);
+            }
+        }
+        if (depth < 0){
+            System.out.println("Usage: Perft [-fen FEN] [-divide] [-threads N] [-check] depth");
+            System.exit(2);
+        }
+        BoardState state = fen == null ? BoardState.InitialState() : BoardState.fromFen(fen);
+        System.out.println("Position " + state.toFen());
+
+        boolean ok = true;
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (int d = 1; d <= depth; d++){
+                long start = System.nanoTime();
+                long nodes = count(state, d, divide && d == depth, executor);
+                long nanos = Math.max(System.nanoTime() - start, 1);
+                System.out.printf("depth %2d %,15d nodes %8d ms %,13d nodes/s%n",
+                        d, nodes, nanos / 1000000, nodes * 1000000000L / nanos);
+                if (check){
+                    ok &= check(state, d, nodes, fen == null);
+                }
+            }
+        }
+        finally {
+            if (executor != null){
+                executor.shutdown();
+            }
+        }
+        if (!ok){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Counts positions depth moves below the state, searching the root moves on the
+     * executor if there is one.
+     */
+    static long count(BoardState state, int depth, boolean divide, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        SearchBoard board = new SearchBoard(state);
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        List<Future<Long>> results = new ArrayList<>();
+        long[] counts = new long[count];
+        for (int i = 0; i < count; i++){
+            if (executor == null){
+                board.makeMove(moves[i]);
+                counts[i] = perft(board, childDepth(board, state, depth), new int[SearchBoard.MAX_PLY][Move.MAX_MOVES]);
+                board.unmakeMove();
+            }
+            else {
+                final int move = moves[i];
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        SearchBoard child = new SearchBoard(state);
+                        child.makeMove(move);
+                        return perft(child, childDepth(child, state, depth), new int[SearchBoard.MAX_PLY][Move.MAX_MOVES]);
+                    }
+                }));
+            }
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++){
+            if (executor != null){
+                counts[i] = results.get(i).get();
+            }
+            if (divide){
+                System.out.printf("  %-8s %,15d%n", Move.toString(moves[i]), counts[i]);
+            }
+            nodes += counts[i];
+        }
+        return nodes;
+    }
+
+    /**
+     * Depth left after a move, which is unchanged while the same player keeps jumping.
+     */
+    private static int childDepth(SearchBoard board, BoardState parent, int depth){
+        return board.getTurn() == parent.getTurn() ? depth : depth - 1;
+    }
+
+    private static long perft(SearchBoard board, int depth, int[][] moveBuffers){
+        if (depth == 0){
+            return 1;
+        }
+        int[] moves = moveBuffers[board.getPly()];
+        int count = board.generateMoves(moves);
+        Player player = board.getTurn();
+        long nodes = 0;
+        for (int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            nodes += perft(board, board.getTurn() == player ? depth : depth - 1, moveBuffers);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the same tree through BoardState.getSuccessors(), the generator used by the game.
+     */
+    static long perftSuccessors(BoardState state, int depth){
+        if (depth == 0){
+            return 1;
+        }
+        long nodes = 0;
+        for (BoardState child : state.getSuccessors()){
+            nodes += perftSuccessors(child, child.getTurn() == state.getTurn() ? depth : depth - 1);
+        }
+        return nodes;
+    }
+
+    private static boolean check(BoardState state, int depth, long nodes, boolean initial){
+        boolean ok = true;
+        long successors = perftSuccessors(state, depth);
+        if (successors != nodes){
+            System.out.println("  MISMATCH: getSuccessors() counts " + successors);
+            ok = false;
+        }
+        if (initial && depth < INITIAL_COUNTS.length && INITIAL_COUNTS[depth] != nodes){
+            System.out.println("  MISMATCH: published count is " + INITIAL_COUNTS[depth]);
+            ok = false;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,117 @@
+package main.tools;
+
+import main.game.BoardState;
+import main.game.ParallelSearch;
+import main.game.SearchConfig;
+import main.game.SearchEngine;
+import main.game.SearchLimits;
+import main.game.SearchStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how the AI's search scales with the number of threads: searches a set of
+ * positions for a fixed time with 1, 2, 4... threads and reports the nodes per second,
+ * the speedup over one thread and the average depth reached.
+ *
+ * Usage: java -cp target/classes main.tools.SearchScaling [options]
+ *   -threads N    largest number of threads, one per core by default
+ *   -time MS      search time per position, 1000 by default
+ *   -mode MODE    lazysmp, rootsplit or both (default)
+ *   -fen FEN      position to search, may be repeated; opening to endgame positions by default
+ */
+public class SearchScaling {
+
+    // depth limit high enough for the time limit to end every search
+    private static final int MAX_DEPTH = 64;
+    // positions searched when none are given
+    private static final String[] POSITIONS = {
+            "B:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12",
+            "B:W17,21,22,23,25,26,27,29,30,31:B1,2,3,5,6,7,9,10,11,14",
+            "B:W17,18,21,24,28,29,30,31,32:B1,2,3,4,5,6,7,10,12",
+            "B:W15,22,23,24,26,29,30,32:B1,2,3,4,5,7,12,13,21",
+            "B:W12,16,17,27,28,29,32:B1,4,5,9,10,15",
+            "B:WK6,15,17,21,29:B4,5,8,12,K20",
+    };
+
+    public static void main(String[] args){
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int timeMs = 1000;
+        String mode = "both";
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < args.length; i++){
+            switch (args[i]){
+                case "-threads":
+                    maxThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "-time":
+                    timeMs = Integer.parseInt(args[++i]);
+                    break;
+                case "-mode":
+                    mode = args[++i];
+                    break;
+                case "-fen":
+                    fens.add(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: SearchScaling [-threads N] [-time MS] [-mode lazysmp|rootsplit|both] [-fen FEN]...");
+                    System.exit(2);
+            }
+        }
+        if (fens.isEmpty()){
+            for (String fen : POSITIONS){
+                fens.add(fen);
+            }
+        }
+        SearchLimits limits = new SearchLimits(MAX_DEPTH, timeMs, 0, 0);
+        // let the JIT compile the search before measuring
+        search(new SearchConfig().setThreads(1), limits, fens);
+        if (!mode.equals("rootsplit")){
+            run(ParallelSearch.LAZY_SMP, maxThreads, limits, fens);
+        }
+        if (!mode.equals("lazysmp")){
+            run(ParallelSearch.ROOT_SPLIT, maxThreads, limits, fens);
+        }
+    }
+
+    private static void run(ParallelSearch parallelism, int maxThreads, SearchLimits limits, List<String> fens){
+        System.out.println(parallelism);
+        double baseNps = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1){
+            SearchConfig config = new SearchConfig().setThreads(threads).setParallelism(parallelism);
+            List<SearchStats> results = search(config, limits, fens);
+            long nodes = 0;
+            double timeMs = 0;
+            int depths = 0;
+            for (SearchStats stats : results){
+                nodes += stats.getNodes();
+                timeMs += stats.getTimeMs();
+                depths += stats.getDepth();
+            }
+            double nps = nodes * 1000 / Math.max(timeMs, 1);
+            if (threads == 1){
+                baseNps = nps;
+            }
+            System.out.printf("threads %3d %,13.0f nodes/s  speedup %5.2f  depth %5.1f%n",
+                    threads, nps, nps / baseNps, (double) depths / fens.size());
+        }
+    }
+
+    /**
+     * Searches every position with a new engine of the given configuration, without book
+     * or database.
+     */
+    private static List<SearchStats> search(SearchConfig config, SearchLimits limits, List<String> fens){
+        config.setOpeningBook("").setEndgameDatabase("");
+        List<SearchStats> results = new ArrayList<>();
+        for (String fen : fens){
+            BoardState state = BoardState.fromFen(fen);
+            SearchEngine engine = config.createEngine(state.getTurn());
+            engine.move(state, limits);
+            results.add(engine.getLastStats());
+            engine.close();
+        }
+        return results;
+    }
+}
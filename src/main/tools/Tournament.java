@@ -0,0 +1,476 @@
+package main.tools;
+
+import main.game.BoardState;
+import main.game.Game;
+import main.game.Heuristic;
+import main.game.ParallelSearch;
+import main.game.Player;
+import main.game.SearchAlgorithm;
+import main.game.SearchConfig;
+import main.game.SearchEngine;
+import main.game.SearchLimits;
+import main.game.SearchStats;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays engine A against engine B without the GUI, several games at a time, and reports
+ * the result, the Elo difference and the speed of both engines.
+ *
+ * Games are played in pairs from the same random opening, with A playing each side once.
+ *
+ * Usage: java -cp target/classes main.tools.Tournament [options]
+ *   -a CONFIG     configuration of engine A, e.g. "depth=8,time=0"
+ *   -b CONFIG     configuration of engine B
+ *   -games N      number of games, 100 by default
+ *   -threads N    games played at the same time, one per core by default
+ *   -plies N      random moves played before the engines take over, 4 by default
+ *   -maxplies N   moves after which a game is a draw, 300 by default
+ *   -seed N       seed of the random openings
+ *   -csv FILE     write every game to a CSV file
+ *   -json FILE    write the summary to a JSON file
+ *
+ * A configuration is a comma separated list of key=value with the keys depth, time (ms
+ * per move), nodes (per move), playouts (per move with search=mcts), threads (search
+ * threads), tt (table size in MB), quiescence and reductions (true or false), heuristic
+ * (material or piecesquare), search (alphabeta, pvs or mcts) and parallel (rootsplit or
+ * lazysmp).
+ * The nodes/s reported for mcts are playouts per second.
+ */
+public class Tournament {
+
+    /**
+     * Search settings of one engine.
+     */
+    private static class EngineConfig {
+        private final String description;
+        private int depth = 6;
+        private int timeMs = 0;
+        private long nodes = 0;
+        private long playouts = 0;
+        private int threads = 1;
+        private int tableMb = 16;
+        private boolean quiescence = true;
+        private boolean reductions = true;
+        private Heuristic heuristic = Heuristic.PIECE_SQUARE;
+        private SearchAlgorithm search = SearchAlgorithm.PVS;
+        private ParallelSearch parallel = ParallelSearch.ROOT_SPLIT;
+
+        private EngineConfig(String description){
+            this.description = description;
+            if (description.isEmpty()){
+                return;
+            }
+            for (String setting : description.split(",")){
+                String[] keyValue = setting.split("=");
+                if (keyValue.length != 2){
+                    throw new IllegalArgumentException("Invalid engine setting " + setting);
+                }
+                switch (keyValue[0].trim()){
+                    case "depth":
+                        depth = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "time":
+                        timeMs = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "nodes":
+                        nodes = Long.parseLong(keyValue[1].trim());
+                        break;
+                    case "playouts":
+                        playouts = Long.parseLong(keyValue[1].trim());
+                        break;
+                    case "threads":
+                        threads = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "tt":
+                        tableMb = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "quiescence":
+                        quiescence = Boolean.parseBoolean(keyValue[1].trim());
+                        break;
+                    case "reductions":
+                        reductions = Boolean.parseBoolean(keyValue[1].trim());
+                        break;
+                    case "heuristic":
+                        heuristic = parseHeuristic(keyValue[1].trim());
+                        break;
+                    case "search":
+                        search = parseSearch(keyValue[1].trim());
+                        break;
+                    case "parallel":
+                        parallel = parseParallel(keyValue[1].trim());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown engine setting " + setting);
+                }
+            }
+        }
+
+        /**
+         * Creates an engine for the player with this configuration. Books and databases
+         * would make the engines' play the same whatever their settings, so none are used.
+         */
+        private SearchEngine create(Player player){
+            SearchConfig config = new SearchConfig()
+                    .setAlgorithm(search)
+                    .setHeuristic(heuristic)
+                    .setQuiescence(quiescence)
+                    .setReductions(reductions)
+                    .setTableMb(tableMb)
+                    .setThreads(threads)
+                    .setParallelism(parallel)
+                    .setOpeningBook("")
+                    .setEndgameDatabase("");
+            return config.createEngine(player);
+        }
+
+        private SearchLimits limits(){
+            return new SearchLimits(depth, timeMs, nodes, playouts);
+        }
+
+        private static Heuristic parseHeuristic(String name){
+            switch (name){
+                case "material":
+                    return Heuristic.MATERIAL;
+                case "piecesquare":
+                    return Heuristic.PIECE_SQUARE;
+                default:
+                    throw new IllegalArgumentException("Unknown heuristic " + name);
+            }
+        }
+
+        private static SearchAlgorithm parseSearch(String name){
+            switch (name){
+                case "alphabeta":
+                    return SearchAlgorithm.ALPHA_BETA;
+                case "pvs":
+                    return SearchAlgorithm.PVS;
+                case "mcts":
+                    return SearchAlgorithm.MCTS;
+                default:
+                    throw new IllegalArgumentException("Unknown search " + name);
+            }
+        }
+
+        private static ParallelSearch parseParallel(String name){
+            switch (name){
+                case "lazysmp":
+                    return ParallelSearch.LAZY_SMP;
+                case "rootsplit":
+                    return ParallelSearch.ROOT_SPLIT;
+                default:
+                    throw new IllegalArgumentException("Unknown parallel search " + name);
+            }
+        }
+    }
+
+    /**
+     * The engines of one game slot: A and B for both sides, and their limits.
+     */
+    private static class Engines {
+        private final SearchEngine[] a = new SearchEngine[2];
+        private final SearchEngine[] b = new SearchEngine[2];
+        private final SearchLimits aLimits;
+        private final SearchLimits bLimits;
+
+        private Engines(EngineConfig configA, EngineConfig configB){
+            for (Player player : Player.values()){
+                a[player.ordinal()] = configA.create(player);
+                b[player.ordinal()] = configB.create(player);
+            }
+            aLimits = configA.limits();
+            bLimits = configB.limits();
+        }
+
+        private void close(){
+            for (int side = 0; side < 2; side++){
+                a[side].close();
+                b[side].close();
+            }
+        }
+    }
+
+    /**
+     * Outcome of one game from A's view.
+     */
+    private static class GameResult {
+        private int game;
+        private Player aSide;
+        private String opening;
+        // 1 for a win of A, 0.5 for a draw, 0 for a loss
+        private double score;
+        private int plies;
+        // moves, time in ns and nodes of A and B
+        private final long[] moves = new long[2];
+        private final long[] nanos = new long[2];
+        private final long[] nodes = new long[2];
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, FileNotFoundException {
+        String a = "";
+        String b = "";
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int plies = 4;
+        int maxPlies = 300;
+        long seed = System.currentTimeMillis();
+        String csv = null;
+        String json = null;
+        for (int i = 0; i < args.length; i++){
+            switch (args[i]){
+                case "-a":
+                    a = args[++i];
+                    break;
+                case "-b":
+                    b = args[++i];
+                    break;
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "-maxplies":
+                    maxPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-csv":
+                    csv = args[++i];
+                    break;
+                case "-json":
+                    json = args[++i];
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        final EngineConfig configA = new EngineConfig(a);
+        final EngineConfig configB = new EngineConfig(b);
+        System.out.println("A: " + configA.description + "  B: " + configB.description + "  seed " + seed);
+
+        threads = Math.max(1, Math.min(threads, games));
+        final BlockingQueue<Engines> engines = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++){
+            engines.add(new Engines(configA, configB));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<GameResult>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i++){
+            final int game = i;
+            final BoardState opening = randomOpening(new Random(seed + i / 2), plies);
+            final int limit = maxPlies;
+            futures.add(executor.submit(new Callable<GameResult>() {
+                @Override
+                public GameResult call() throws InterruptedException {
+                    Engines slot = engines.take();
+                    try {
+                        return play(game, opening, slot, limit);
+                    }
+                    finally {
+                        engines.add(slot);
+                    }
+                }
+            }));
+        }
+        List<GameResult> results = new ArrayList<>();
+        try {
+            for (Future<GameResult> future : futures){
+                GameResult result = future.get();
+                results.add(result);
+                System.out.printf(Locale.ROOT, "game %d: A %s, %s after %d plies%n", result.game,
+                        result.aSide == Player.AI ? "first side" : "second side", outcome(result.score), result.plies);
+            }
+        }
+        finally {
+            // all games are done unless one failed; then drop the queued ones and close
+            // the engines not in use
+            executor.shutdownNow();
+            for (Engines slot : engines){
+                slot.close();
+            }
+        }
+        report(configA, configB, results, csv, json);
+    }
+
+    /**
+     * Plays random moves from the initial position.
+     */
+    private static BoardState randomOpening(Random random, int plies){
+        BoardState state = BoardState.InitialState();
+        for (int i = 0; i < plies; i++){
+            ArrayList<BoardState> successors = state.getSuccessors();
+            if (successors.isEmpty()){
+                break;
+            }
+            state = successors.get(random.nextInt(successors.size()));
+        }
+        return state;
+    }
+
+    private static GameResult play(int gameNumber, BoardState opening, Engines engines, int maxPlies){
+        GameResult result = new GameResult();
+        result.game = gameNumber;
+        result.opening = opening.toFen();
+        // A plays the AI side in even games
+        result.aSide = gameNumber % 2 == 0 ? Player.AI : Player.HUMAN;
+        SearchEngine[] sides = new SearchEngine[2];
+        SearchLimits[] limits = new SearchLimits[2];
+        sides[result.aSide.ordinal()] = engines.a[result.aSide.ordinal()];
+        limits[result.aSide.ordinal()] = engines.aLimits;
+        Player bSide = result.aSide.getOpposite();
+        sides[bSide.ordinal()] = engines.b[bSide.ordinal()];
+        limits[bSide.ordinal()] = engines.bLimits;
+        for (SearchEngine ai : sides){
+            ai.clear();
+        }
+
+        Game game = new Game(opening, sides[Player.AI.ordinal()], limits[Player.AI.ordinal()]);
+        Player blocked = opening.getSuccessors().isEmpty() ? opening.getTurn() : null;
+        while (blocked == null && !game.isGameOver() && result.plies < maxPlies){
+            BoardState state = game.getState();
+            Player turn = state.getTurn();
+            SearchEngine ai = sides[turn.ordinal()];
+            long start = System.nanoTime();
+            BoardState next = ai.move(state, limits[turn.ordinal()]);
+            int engine = turn == result.aSide ? 0 : 1;
+            result.nanos[engine] += System.nanoTime() - start;
+            SearchStats stats = ai.getLastStats();
+            result.nodes[engine] += stats.getPlayouts() > 0 ? stats.getPlayouts() : stats.getNodes();
+            result.moves[engine]++;
+            if (turn == Player.AI){
+                game.aiMove(next);
+            }
+            else {
+                game.playerMove(next);
+            }
+            result.plies++;
+        }
+        Player winner = blocked != null ? blocked.getOpposite() : game.getWinner();
+        result.score = winner == null ? 0.5 : winner == result.aSide ? 1 : 0;
+        return result;
+    }
+
+    private static String outcome(double score){
+        return score == 1 ? "win" : score == 0 ? "loss" : "draw";
+    }
+
+    private static void report(EngineConfig configA, EngineConfig configB, List<GameResult> results,
+                               String csv, String json) throws FileNotFoundException {
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        double total = 0;
+        double squares = 0;
+        long[] moves = new long[2];
+        long[] nanos = new long[2];
+        long[] nodes = new long[2];
+        for (GameResult result : results){
+            if (result.score == 1){
+                wins++;
+            }
+            else if (result.score == 0){
+                losses++;
+            }
+            else {
+                draws++;
+            }
+            total += result.score;
+            squares += result.score * result.score;
+            for (int engine = 0; engine < 2; engine++){
+                moves[engine] += result.moves[engine];
+                nanos[engine] += result.nanos[engine];
+                nodes[engine] += result.nodes[engine];
+            }
+        }
+        int games = results.size();
+        double score = total / games;
+        double deviation = Math.sqrt(Math.max(0, squares / games - score * score) / games);
+        double elo = elo(score);
+        // 95% confidence interval of the score, converted to Elo
+        double eloError = (elo(Math.min(score + 1.96 * deviation, 1)) - elo(Math.max(score - 1.96 * deviation, 0))) / 2;
+
+        System.out.printf(Locale.ROOT, "A vs B: +%d =%d -%d, score %.3f, Elo %+.1f +/- %.1f%n",
+                wins, draws, losses, score, elo, eloError);
+        for (int engine = 0; engine < 2; engine++){
+            System.out.printf(Locale.ROOT, "%s: %.1f ms/move, %.0f nodes/s%n", engine == 0 ? "A" : "B",
+                    msPerMove(nanos[engine], moves[engine]), nodesPerSecond(nodes[engine], nanos[engine]));
+        }
+
+        if (csv != null){
+            try (PrintWriter out = new PrintWriter(csv)){
+                out.println("game,a_side,opening,result,plies,a_moves,a_ms,a_nodes,b_moves,b_ms,b_nodes");
+                for (GameResult result : results){
+                    out.printf(Locale.ROOT, "%d,%s,\"%s\",%s,%d,%d,%d,%d,%d,%d,%d%n", result.game, result.aSide,
+                            result.opening, outcome(result.score), result.plies,
+                            result.moves[0], result.nanos[0] / 1000000, result.nodes[0],
+                            result.moves[1], result.nanos[1] / 1000000, result.nodes[1]);
+                }
+            }
+        }
+        if (json != null){
+            try (PrintWriter out = new PrintWriter(json)){
+                out.printf(Locale.ROOT, "{\"a\": %s, \"b\": %s, \"games\": %d, \"wins\": %d, \"draws\": %d, "
+                                + "\"losses\": %d, \"score\": %.4f, \"elo\": %.1f, \"elo_error\": %.1f, "
+                                + "\"a_ms_per_move\": %.2f, \"a_nodes_per_second\": %.0f, "
+                                + "\"b_ms_per_move\": %.2f, \"b_nodes_per_second\": %.0f}%n",
+                        jsonString(configA.description), jsonString(configB.description), games, wins, draws, losses, score, elo, eloError,
+                        msPerMove(nanos[0], moves[0]), nodesPerSecond(nodes[0], nanos[0]),
+                        msPerMove(nanos[1], moves[1]), nodesPerSecond(nodes[1], nanos[1]));
+            }
+        }
+    }
+
+    /**
+     * Quotes a string for JSON, escaping quotes, backslashes and control characters.
+     */
+    private static String jsonString(String value){
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\'){
+                result.append('\\').append(c);
+            }
+            else if (c < 0x20){
+                result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            }
+            else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Elo difference giving the expected score, capped for scores of 0 and 1.
+     */
+    private static double elo(double score){
+        double clamped = Math.max(0.001, Math.min(0.999, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    private static double msPerMove(long nanos, long moves){
+        return moves == 0 ? 0 : nanos / 1e6 / moves;
+    }
+
+    private static double nodesPerSecond(long nodes, long nanos){
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+}
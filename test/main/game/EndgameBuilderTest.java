@@ -0,0 +1,188 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the endgame index and the values of the retrograde analysis against a plain
+ * forward solver, which decides the positions of all slices at once pass after pass.
+ */
+class EndgameBuilderTest {
+
+    private static final int PIECES = 3;
+
+    @Test
+    void indexNumbersPossiblePositions(){
+        int[] position = new int[3];
+        for (int[] material : materials(4)){
+            long size = EndgameIndex.size(material[0], material[1], material[2], material[3]);
+            for (int index = 0; index < size; index++){
+                EndgameIndex.position(index, material[0], material[1], material[2], material[3], position);
+                int ai = position[0];
+                int human = position[1];
+                int kings = position[2];
+                assertEquals(0, ai & human);
+                assertEquals(material[0], Integer.bitCount(ai & ~kings));
+                assertEquals(material[1], Integer.bitCount(ai & kings));
+                assertEquals(material[2], Integer.bitCount(human & ~kings));
+                assertEquals(material[3], Integer.bitCount(human & kings));
+                assertEquals(0, ai & ~kings & Bitboard.promotionRow(Player.AI));
+                assertEquals(0, human & ~kings & Bitboard.promotionRow(Player.HUMAN));
+                assertEquals(index, EndgameIndex.index(ai, human, kings));
+            }
+        }
+    }
+
+    @Test
+    void retrogradeAnalysisMatchesForwardSolving(){
+        EndgameBuilder builder = new EndgameBuilder(PIECES);
+        builder.build();
+        ForwardSolver solver = new ForwardSolver();
+        solver.solve();
+        int[] position = new int[3];
+        for (int[] material : materials(PIECES)){
+            int slice = EndgameIndex.slice(material[0], material[1], material[2], material[3]);
+            for (int side = 0; side < 2; side++){
+                Player turn = side == 0 ? Player.AI : Player.HUMAN;
+                short[] expected = solver.values[slice * 2 + side];
+                for (int index = 0; index < expected.length; index++){
+                    EndgameIndex.position(index, material[0], material[1], material[2], material[3], position);
+                    assertEquals(expected[index], builder.value(position[0], position[1], position[2], turn),
+                            "slice " + slice + " side " + side + " index " + index);
+                }
+            }
+        }
+    }
+
+    private static List<int[]> materials(int maxPieces){
+        List<int[]> materials = new ArrayList<>();
+        for (int pieces = 2; pieces <= maxPieces; pieces++){
+            for (int aiCount = 1; aiCount < pieces; aiCount++){
+                for (int aiMen = 0; aiMen <= aiCount; aiMen++){
+                    for (int humanMen = 0; humanMen <= pieces - aiCount; humanMen++){
+                        materials.add(new int[]{aiMen, aiCount - aiMen, humanMen, pieces - aiCount - humanMen});
+                    }
+                }
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * Decides the positions of all slices at once in passes, each from the values
+     * decided before it, until a pass decides nothing new.
+     */
+    private static class ForwardSolver {
+
+        final short[][] values = new short[EndgameIndex.SLICES * 2][];
+        private final SearchBoard board = new SearchBoard();
+        private final int[][] moveBuffers = new int[SearchBoard.MAX_PLY][MoveGenerator.MAX_MOVES];
+        private final int[] position = new int[3];
+
+        // results of the moves of the position being solved
+        private int moves;
+        private int wins;
+        private int quickestWin;
+        private int slowestLoss;
+
+        void solve(){
+            List<int[]> materials = materials(PIECES);
+            for (int[] material : materials){
+                int slice = EndgameIndex.slice(material[0], material[1], material[2], material[3]);
+                int size = (int) EndgameIndex.size(material[0], material[1], material[2], material[3]);
+                values[slice * 2] = new short[size];
+                values[slice * 2 + 1] = new short[size];
+            }
+            List<int[]> decided = new ArrayList<>();
+            do {
+                decided.clear();
+                for (int[] material : materials){
+                    int slice = EndgameIndex.slice(material[0], material[1], material[2], material[3]);
+                    for (int side = 0; side < 2; side++){
+                        short[] sideValues = values[slice * 2 + side];
+                        for (int index = 0; index < sideValues.length; index++){
+                            if (sideValues[index] != 0){
+                                continue;
+                            }
+                            EndgameIndex.position(index, material[0], material[1], material[2], material[3], position);
+                            Player turn = side == 0 ? Player.AI : Player.HUMAN;
+                            board.setPosition(position[0], position[1], position[2], turn);
+                            int value = solve(turn);
+                            if (value != 0){
+                                decided.add(new int[]{slice * 2 + side, index, value});
+                            }
+                        }
+                    }
+                }
+                for (int[] decision : decided){
+                    values[decision[0]][decision[1]] = (short) decision[2];
+                }
+            } while (!decided.isEmpty());
+        }
+
+        /**
+         * Value of the board's position from the values decided so far, 0 if not known.
+         */
+        private int solve(Player player){
+            moves = 0;
+            wins = 0;
+            quickestWin = 0;
+            slowestLoss = 0;
+            scanMoves(player);
+            if (moves == 0){
+                return -1;
+            }
+            if (quickestWin != 0){
+                return quickestWin;
+            }
+            return wins == moves ? -slowestLoss : 0;
+        }
+
+        private void scanMoves(Player player){
+            int[] buffer = moveBuffers[board.getPly()];
+            int count = board.generateMoves(buffer);
+            for (int i = 0; i < count; i++){
+                board.makeMove(buffer[i]);
+                if (board.getTurn() == player){
+                    scanMoves(player);
+                }
+                else {
+                    moves++;
+                    int value = childValue();
+                    if (value < 0 && (quickestWin == 0 || 1 - value < quickestWin)){
+                        quickestWin = 1 - value;
+                    }
+                    else if (value > 0){
+                        wins++;
+                        slowestLoss = Math.max(slowestLoss, value + 1);
+                    }
+                }
+                board.unmakeMove();
+            }
+        }
+
+        /**
+         * Value of the board's position for the player to move, -1 without pieces.
+         */
+        private int childValue(){
+            Player turn = board.getTurn();
+            if (board.getPieces(turn) == 0){
+                return -1;
+            }
+            int ai = board.getPieces(Player.AI);
+            int human = board.getPieces(Player.HUMAN);
+            int kings = board.getKings();
+            int index = EndgameIndex.index(ai, human, kings);
+            int[] child = new int[3];
+            EndgameIndex.position(index, Integer.bitCount(ai & ~kings), Integer.bitCount(ai & kings),
+                    Integer.bitCount(human & ~kings), Integer.bitCount(human & kings), child);
+            assertArrayEquals(new int[]{ai, human, kings}, child);
+            return values[EndgameIndex.slice(ai, human, kings) * 2 + (turn == Player.AI ? 0 : 1)][index];
+        }
+    }
+}
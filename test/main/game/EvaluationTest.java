@@ -0,0 +1,48 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the incrementally updated evaluation of SearchBoard against the evaluation
+ * computed from scratch, and that it scores both players alike.
+ */
+class EvaluationTest {
+
+    private static final int GAMES = 200;
+
+    @Test
+    void incrementalEvaluationMatchesFromScratch(){
+        RandomGames.replay(GAMES, 5, new RandomGames.Check() {
+            @Override
+            public void check(BoardState state, SearchBoard board){
+                // won positions score by the ply they are reached at, so only compare the others
+                if (board.isGameOver()){
+                    return;
+                }
+                String fen = state.toFen();
+                assertEquals(new SearchBoard(state).evaluate(Player.AI), board.evaluate(Player.AI), fen);
+                assertEquals(-board.evaluate(Player.AI), board.evaluate(Player.HUMAN), fen);
+                assertEquals(state.computeHeuristic(Player.HUMAN), board.computeHeuristic(Player.HUMAN), fen);
+            }
+        });
+    }
+
+    @Test
+    void evaluationIsSymmetric(){
+        final SearchBoard mirrored = new SearchBoard();
+        RandomGames.replay(GAMES, 6, new RandomGames.Check() {
+            @Override
+            public void check(BoardState state, SearchBoard board){
+                if (board.isGameOver()){
+                    return;
+                }
+                // turning the board around maps square s to 31 - s, the bit order reversed
+                mirrored.setPosition(Integer.reverse(state.humanPieces), Integer.reverse(state.aiPieces),
+                        Integer.reverse(state.kings), state.getTurn().getOpposite());
+                assertEquals(board.evaluate(Player.AI), mirrored.evaluate(Player.HUMAN), state.toFen());
+            }
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the move history with snapshots, directly and through Game's undo and redo.
+ */
+class GameHistoryTest {
+
+    private static final int GAMES = 20;
+    private static final int MAX_PLIES = 150;
+
+    @Test
+    void snapshotsAndMovesRebuildEveryPly(){
+        Random random = new Random(4);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        BoardState state = BoardState.InitialState();
+        GameHistory history = new GameHistory(state);
+        List<BoardState> played = new ArrayList<>();
+        played.add(state);
+        for (int ply = 0; ply < MAX_PLIES && !state.isGameOver(); ply++){
+            int count = state.generateMoves(moves);
+            if (count == 0){
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            state = state.apply(move);
+            history.add(move, state, 0);
+            played.add(state);
+        }
+        assertEquals(played.size() - 1, history.getLength());
+        for (int ply = 0; ply < played.size(); ply++){
+            BoardState position = history.snapshot(ply);
+            for (int i = GameHistory.snapshotPly(ply); i < ply; i++){
+                position = position.apply(history.getMove(i));
+            }
+            assertEquals(played.get(ply).getHash(), position.getHash(), "ply " + ply);
+        }
+
+        // playing the undone move again keeps the moves after it, another move drops them
+        int length = history.getLength();
+        history.setPly(10);
+        history.add(history.getMove(10), played.get(11), 0);
+        assertEquals(length, history.getLength());
+        history.setPly(10);
+        int count = played.get(10).generateMoves(moves);
+        for (int i = 0; i < count; i++){
+            if (moves[i] != history.getMove(10)){
+                history.add(moves[i], played.get(10).apply(moves[i]), 0);
+                break;
+            }
+        }
+        assertEquals(11, history.getLength());
+    }
+
+    @Test
+    void undoAndRedoWalkThroughTheGame(){
+        Random random = new Random(2);
+        SearchEngine engine = new SearchConfig().setThreads(1).setTableMb(1)
+                .setOpeningBook("").setEndgameDatabase("").createEngine(Player.AI);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int g = 0; g < GAMES; g++){
+            Game game = new Game(BoardState.InitialState(), engine, SearchLimits.depth(1));
+            List<BoardState> played = new ArrayList<>();
+            played.add(game.getState());
+            while (!game.isGameOver() && played.size() < MAX_PLIES){
+                BoardState state = game.getState();
+                int move = moves[random.nextInt(state.generateMoves(moves))];
+                if (state.getTurn() == Player.HUMAN){
+                    game.playerMove(move);
+                }
+                else {
+                    game.aiMove(state.apply(move));
+                }
+                played.add(game.getState());
+            }
+            BoardState end = game.getState();
+            boolean over = game.isGameOver();
+
+            // undo stops at every human turn on the way back to the start
+            int ply = played.size() - 1;
+            while (true){
+                int previous = ply - 1;
+                while (previous >= 0 && played.get(previous).getTurn() != Player.HUMAN){
+                    previous--;
+                }
+                if (previous < 0){
+                    break;
+                }
+                game.undo();
+                assertEquals(played.get(previous).getHash(), game.getState().getHash(), "undo to ply " + previous);
+                ply = previous;
+            }
+            for (int i = 0; i < MAX_PLIES && game.getState().getHash() != end.getHash(); i++){
+                game.redo();
+            }
+            assertEquals(end.getHash(), game.getState().getHash(), "redo to the end");
+            assertEquals(over, game.isGameOver(), "game over after redo");
+        }
+        engine.close();
+    }
+}
@@ -0,0 +1,77 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Plays random games through Game, checking the legal moves it serves from its cache on
+ * every ply, also after undo and redo.
+ */
+class GameTest {
+
+    private static final int GAMES = 20;
+    private static final int MAX_PLIES = 150;
+
+    @Test
+    void legalMoveCacheFollowsThePosition(){
+        Random random = new Random(2);
+        SearchEngine engine = new SearchConfig().setThreads(1).setTableMb(1)
+                .setOpeningBook("").setEndgameDatabase("").createEngine(Player.AI);
+        for (int g = 0; g < GAMES; g++){
+            Game game = new Game(BoardState.InitialState(), engine, SearchLimits.depth(1));
+            for (int ply = 0; ply < MAX_PLIES && !game.isGameOver(); ply++){
+                BoardState state = game.getState();
+                int[] moves = checkLegalMoves(game, state);
+                int move = moves[random.nextInt(moves.length)];
+                if (state.getTurn() == Player.HUMAN){
+                    game.playerMove(move);
+                }
+                else {
+                    game.aiMove(state.apply(move));
+                }
+                // now and then take the last moves back and play them again
+                if (random.nextInt(10) == 0){
+                    game.undo();
+                    checkLegalMoves(game, game.getState());
+                    game.redo();
+                }
+            }
+            checkLegalMoves(game, game.getState());
+        }
+        engine.close();
+    }
+
+    /**
+     * Checks the moves served by the game's cache against the move generator.
+     * @return the legal moves
+     */
+    private static int[] checkLegalMoves(Game game, BoardState state){
+        int[] buffer = new int[Move.MAX_MOVES];
+        int[] expected = sorted(buffer, state.generateMoves(buffer));
+        assertArrayEquals(expected, sorted(buffer, game.getValidMoves(buffer)), state.toFen());
+        int movable = 0;
+        int byPiece = 0;
+        for (int move : expected){
+            movable |= 1 << Move.from(move);
+        }
+        assertEquals(movable, game.getMovablePieces(), state.toFen());
+        for (int square = 0; square < Bitboard.SQUARES; square++){
+            if ((movable & (1 << square)) != 0){
+                byPiece += game.getValidMoves(Bitboard.col(square), Bitboard.row(square), buffer);
+            }
+        }
+        assertEquals(expected.length, byPiece, state.toFen());
+        return expected;
+    }
+
+    private static int[] sorted(int[] moves, int count){
+        int[] result = Arrays.copyOf(moves, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the workers of a Monte Carlo search together keep to the playout budget.
+ */
+class MonteCarloSearchTest {
+
+    @Test
+    void playoutBudgetIsSharedByTheWorkers(){
+        BoardState state = BoardState.InitialState();
+        for (long seed : new long[]{0, 3}){
+            for (int threads : new int[]{1, 3, 16}){
+                SearchEngine engine = new SearchConfig().setAlgorithm(SearchAlgorithm.MCTS).setThreads(threads)
+                        .setSeed(seed).setOpeningBook("").setEndgameDatabase("").createEngine(state.getTurn());
+                for (long playouts : new long[]{1, 200, 1000}){
+                    engine.move(state, new SearchLimits(1, 0, 0, playouts));
+                    assertEquals(playouts, engine.getLastStats().getPlayouts(), threads + " threads, seed " + seed);
+                }
+                engine.close();
+            }
+        }
+    }
+}
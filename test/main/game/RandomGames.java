@@ -0,0 +1,75 @@
+package main.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Replays random games on a SearchBoard and on BoardState side by side, making every move
+ * and then taking them all back, and hands every position reached to a check.
+ */
+class RandomGames {
+
+    // positions the games start from: opening, middlegames, endgame and kings only
+    static final String[] POSITIONS = {
+            "B:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12",
+            "B:W17,21,22,23,25,26,27,29,30,31:B1,2,3,5,6,7,9,10,11,14",
+            "B:W12,16,17,27,28,29,32:B1,4,5,9,10,15",
+            "B:WK6,15,17,21,29:B4,5,8,12,K20",
+            "W:WK10,K18,K27:BK3,K14",
+    };
+
+    interface Check {
+
+        /**
+         * Checks the board against the state of the same position.
+         */
+        void check(BoardState state, SearchBoard board);
+    }
+
+    /**
+     * Plays the games from POSITIONS in turn. Both generators must give the same moves.
+     */
+    static void replay(int games, long seed, Check check){
+        Random random = new Random(seed);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int game = 0; game < games; game++){
+            BoardState state = BoardState.fromFen(POSITIONS[game % POSITIONS.length]);
+            SearchBoard board = new SearchBoard(state);
+            List<BoardState> line = new ArrayList<>();
+            line.add(state);
+            check.check(state, board);
+            while (board.getPly() < SearchBoard.MAX_PLY - 1){
+                int count = board.generateMoves(moves);
+                assertArrayEquals(sortedMoves(state), sorted(moves, count), state.toFen());
+                if (count == 0){
+                    break;
+                }
+                int move = moves[random.nextInt(count)];
+                board.makeMove(move);
+                state = state.apply(move);
+                line.add(state);
+                check.check(state, board);
+            }
+            // take every move back, the board must pass through the same positions
+            while (board.getPly() > 0){
+                board.unmakeMove();
+                check.check(line.get(board.getPly()), board);
+            }
+        }
+    }
+
+    private static int[] sortedMoves(BoardState state){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        return sorted(moves, state.generateMoves(moves));
+    }
+
+    private static int[] sorted(int[] moves, int count){
+        int[] result = Arrays.copyOf(moves, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
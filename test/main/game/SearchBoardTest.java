@@ -0,0 +1,31 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that make/unmake on SearchBoard keeps the board equal to the BoardState of the
+ * same position, through random games and back.
+ */
+class SearchBoardTest {
+
+    private static final int GAMES = 200;
+
+    @Test
+    void makeUnmakeMatchesBoardState(){
+        RandomGames.replay(GAMES, 1, new RandomGames.Check() {
+            @Override
+            public void check(BoardState state, SearchBoard board){
+                String fen = state.toFen();
+                assertEquals(state.aiPieces, board.getPieces(Player.AI), fen);
+                assertEquals(state.humanPieces, board.getPieces(Player.HUMAN), fen);
+                assertEquals(state.kings, board.getKings(), fen);
+                assertEquals(state.getTurn(), board.getTurn(), fen);
+                assertEquals(state.jumpSquare, board.getJumpSquare(), fen);
+                assertEquals(state.getOnlyKingsMoves(), board.getOnlyKingsMoves(), fen);
+                assertEquals(state.isGameOver(), board.isGameOver(), fen);
+            }
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that seeded searches choose the same moves every run, whatever the number of
+ * threads and the way they are scheduled (see SearchConfig.setSeed).
+ */
+class SearchDeterminismTest {
+
+    private static final String[] POSITIONS = {
+            "B:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12",
+            "B:W17,21,22,23,25,26,27,29,30,31:B1,2,3,5,6,7,9,10,11,14",
+            "B:W15,22,23,24,26,29,30,32:B1,2,3,4,5,7,12,13,21",
+            "B:W12,16,17,27,28,29,32:B1,4,5,9,10,15",
+    };
+    private static final int PLIES = 12;
+    private static final int RUNS = 3;
+
+    @Test
+    void seededMinimaxPlaysTheSameGames(){
+        for (SearchAlgorithm algorithm : new SearchAlgorithm[]{SearchAlgorithm.ALPHA_BETA, SearchAlgorithm.PVS}){
+            SearchConfig config = config(4).setAlgorithm(algorithm);
+            List<String> first = play(config, SearchLimits.depth(7));
+            for (int run = 1; run < RUNS; run++){
+                assertEquals(first, play(config, SearchLimits.depth(7)), algorithm.toString());
+            }
+        }
+    }
+
+    @Test
+    void seededSearchRejectsNondeterministicThreads(){
+        final SearchConfig lazy = config(4).setParallelism(ParallelSearch.LAZY_SMP);
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                lazy.createEngine(Player.AI);
+            }
+        });
+        final SearchConfig reduced = config(4).setReductions(true);
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                reduced.createEngine(Player.AI);
+            }
+        });
+        // one thread has no scheduling to depend on
+        config(1).setParallelism(ParallelSearch.LAZY_SMP).setReductions(true).createEngine(Player.AI).close();
+    }
+
+    @Test
+    void seededMonteCarloPlaysTheSameGames(){
+        SearchConfig config = config(3).setAlgorithm(SearchAlgorithm.MCTS);
+        SearchLimits limits = new SearchLimits(1, 0, 0, 3000);
+        List<String> first = play(config, limits);
+        for (int run = 1; run < RUNS; run++){
+            assertEquals(first, play(config, limits));
+        }
+    }
+
+    /**
+     * PVS without reductions, as run by a seeded engine with several threads, must find
+     * the same minimax score as alpha-beta.
+     */
+    @Test
+    void principalVariationSearchScoresLikeAlphaBeta(){
+        for (Heuristic heuristic : Heuristic.values()){
+            for (String fen : POSITIONS){
+                BoardState state = BoardState.fromFen(fen);
+                for (int depth = 1; depth <= 7; depth++){
+                    SearchConfig config = config(2).setHeuristic(heuristic);
+                    AI alphaBeta = new AI(config.setAlgorithm(SearchAlgorithm.ALPHA_BETA), state.getTurn());
+                    AI pvs = new AI(config.setAlgorithm(SearchAlgorithm.PVS), state.getTurn());
+                    alphaBeta.move(state, SearchLimits.depth(depth));
+                    pvs.move(state, SearchLimits.depth(depth));
+                    assertEquals(alphaBeta.getLastScore(), pvs.getLastScore(), heuristic + " " + fen + " depth " + depth);
+                    alphaBeta.close();
+                    pvs.close();
+                }
+            }
+        }
+    }
+
+    private static SearchConfig config(int threads){
+        return new SearchConfig().setThreads(threads).setSeed(7).setReductions(false).setTableMb(4)
+                .setOpeningBook("").setEndgameDatabase("");
+    }
+
+    /**
+     * Plays PLIES moves from every position with one engine per side.
+     * @return the positions played
+     */
+    private static List<String> play(SearchConfig config, SearchLimits limits){
+        List<String> positions = new ArrayList<>();
+        for (String fen : POSITIONS){
+            BoardState state = BoardState.fromFen(fen);
+            SearchEngine[] engines = {config.createEngine(Player.values()[0]), config.createEngine(Player.values()[1])};
+            for (int ply = 0; ply < PLIES && !state.isGameOver() && state.hasMoves(); ply++){
+                state = engines[state.getTurn().ordinal()].move(state, limits);
+                positions.add(state.toFen());
+            }
+            for (SearchEngine engine : engines){
+                engine.close();
+            }
+        }
+        return positions;
+    }
+}
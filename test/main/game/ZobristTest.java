@@ -0,0 +1,57 @@
+package main.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the incrementally updated Zobrist hashes against hashes computed from scratch,
+ * and storing and finding positions in the transposition table.
+ */
+class ZobristTest {
+
+    private static final int GAMES = 200;
+
+    @Test
+    void incrementalHashMatchesFromScratch(){
+        // position of every hash seen, no two positions may share one
+        final Map<Long, String> positions = new HashMap<>();
+        RandomGames.replay(GAMES, 3, new RandomGames.Check() {
+            @Override
+            public void check(BoardState state, SearchBoard board){
+                String fen = state.toFen();
+                long hash = Zobrist.hash(state.aiPieces, state.humanPieces, state.kings, state.getTurn(), state.jumpSquare);
+                assertEquals(hash, state.getHash(), fen);
+                assertEquals(hash, board.getHash(), fen);
+                String position = fen + " " + state.jumpSquare;
+                String previous = positions.put(hash, position);
+                if (previous != null){
+                    assertEquals(previous, position, "hash collision");
+                }
+            }
+        });
+    }
+
+    @Test
+    void tableFindsStoredEntries(){
+        TranspositionTable table = new TranspositionTable(1);
+        BoardState state = BoardState.InitialState();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = state.generateMoves(moves);
+        for (int i = 0; i < count; i++){
+            BoardState child = state.apply(moves[i]);
+            table.store(child.getHash(), i + 1, TranspositionTable.EXACT, -100 * i, moves[i]);
+        }
+        for (int i = 0; i < count; i++){
+            long entry = table.probe(state.apply(moves[i]).getHash());
+            assertEquals(moves[i], TranspositionTable.move(entry));
+            assertEquals(-100 * i, TranspositionTable.score(entry));
+            assertEquals(i + 1, TranspositionTable.depth(entry));
+            assertEquals(TranspositionTable.EXACT, TranspositionTable.bound(entry));
+        }
+        assertEquals(0, table.probe(state.getHash()));
+    }
+}
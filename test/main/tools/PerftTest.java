@@ -0,0 +1,54 @@
+package main.tools;
+
+import main.game.BoardState;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the move generator against the published perft counts of the initial position.
+ */
+class PerftTest {
+
+    // deepest published count checked, a few seconds at most
+    private static final int MAX_DEPTH = 9;
+
+    @Test
+    void initialPositionMatchesPublishedCounts() throws Exception {
+        BoardState state = BoardState.InitialState();
+        for (int depth = 1; depth <= MAX_DEPTH; depth++){
+            assertEquals(Perft.INITIAL_COUNTS[depth], Perft.count(state, depth, false, null), "depth " + depth);
+        }
+    }
+
+    @Test
+    void splitRootCountsTheSame() throws Exception {
+        BoardState state = BoardState.InitialState();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals(Perft.INITIAL_COUNTS[6], Perft.count(state, 6, false, executor));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void successorsAgreeWithMoveGenerator() throws Exception {
+        String[] fens = {
+                "B:W17,21,22,23,25,26,27,29,30,31:B1,2,3,5,6,7,9,10,11,14",
+                "B:W15,22,23,24,26,29,30,32:B1,2,3,4,5,7,12,13,21",
+                "B:WK6,15,17,21,29:B4,5,8,12,K20",
+        };
+        for (String fen : fens){
+            BoardState state = BoardState.fromFen(fen);
+            for (int depth = 1; depth <= 5; depth++){
+                assertEquals(Perft.perftSuccessors(state, depth), Perft.count(state, depth, false, null),
+                        fen + " depth " + depth);
+            }
+        }
+    }
+}